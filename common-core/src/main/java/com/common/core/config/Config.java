@@ -17,6 +17,10 @@ public class Config {
 
     // HTTP
     private final int serverPort;
+    private final String serverExecutor;
+    private final int serverThreads;
+    private final int serverQueueCapacity;
+    private final int serverMaxRequestSeconds;
 
     // Database (PostgreSQL)
     private final String dbUrl;
@@ -35,6 +39,7 @@ public class Config {
     // File storage
     private final String fileStoragePath;
     private final int fileRetentionDays;
+    private final long fileMaxSizeBytes;
 
     // API (для внешних сервисов)
     private final String geocodingApiUrl;
@@ -49,6 +54,10 @@ public class Config {
         loadProperties();
 
         this.serverPort = Integer.parseInt(getProperty("server.port", "SERVER_PORT"));
+        this.serverExecutor = getProperty("server.executor", "SERVER_EXECUTOR");
+        this.serverThreads = Integer.parseInt(getProperty("server.threads", "SERVER_THREADS"));
+        this.serverQueueCapacity = Integer.parseInt(getProperty("server.queue.capacity", "SERVER_QUEUE_CAPACITY"));
+        this.serverMaxRequestSeconds = Integer.parseInt(getProperty("server.max.request.seconds", "SERVER_MAX_REQUEST_SECONDS"));
         this.dbUrl = getProperty("db.url", "DB_URL");
         this.dbUser = getProperty("db.user", "DB_USER");
         this.dbPassword = getProperty("db.password", "DB_PASSWORD");
@@ -59,6 +68,7 @@ public class Config {
         this.jwtExpirationMs = Long.parseLong(getProperty("jwt.expiration.ms", "JWT_EXPIRATION_MS"));
         this.fileStoragePath = getProperty("file.storage.path", "FILE_STORAGE_PATH");
         this.fileRetentionDays = Integer.parseInt(getProperty("file.retention.days", "FILE_RETENTION_DAYS"));
+        this.fileMaxSizeBytes = Long.parseLong(getProperty("file.max.size.bytes", "FILE_MAX_SIZE_BYTES"));
         this.geocodingApiUrl = getProperty("api.geocoding.url", "API_GEOCODING_URL");
         this.weatherApiUrl = getProperty("api.weather.url", "API_WEATHER_URL");
         this.apiTimeoutSeconds = Integer.parseInt(getProperty("api.timeout.seconds", "API_TIMEOUT_SECONDS"));
@@ -95,6 +105,10 @@ public class Config {
     private String getDefault(String key) {
         return switch (key) {
             case "server.port" -> "8080";
+            case "server.executor" -> "virtual";
+            case "server.threads" -> "10";
+            case "server.queue.capacity" -> "100";
+            case "server.max.request.seconds" -> "600";
             case "db.url" -> "jdbc:postgresql://localhost:5432/fileservice";
             case "db.user" -> "postgres";
             case "db.password" -> "postgres";
@@ -105,6 +119,7 @@ public class Config {
             case "jwt.expiration.ms" -> "86400000";
             case "file.storage.path" -> "./uploads";
             case "file.retention.days" -> "30";
+            case "file.max.size.bytes" -> "4294967296";
             case "api.geocoding.url" -> "https://geocoding-api.open-meteo.com/v1/search";
             case "api.weather.url" -> "https://api.open-meteo.com/v1/forecast";
             case "api.timeout.seconds" -> "10";
@@ -0,0 +1,91 @@
+package com.common.core.http;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Разбор заголовка Range вида {@code bytes=0-99,200-,-500} для ресурса известной длины.
+ * Пересекающиеся и соседние диапазоны сливаются, результат упорядочен по началу.
+ */
+final class ByteRanges {
+    /** Больше диапазонов в одном запросе не обслуживается — отдаётся весь файл */
+    static final int MAX_RANGES = 16;
+
+    private ByteRanges() {
+    }
+
+    /** Диапазон [start, end] включительно */
+    record Range(long start, long end) {
+        long length() {
+            return end - start + 1;
+        }
+
+        String contentRange(long size) {
+            return "bytes " + start + "-" + end + "/" + size;
+        }
+    }
+
+    /**
+     * @return null — заголовок синтаксически неверен или диапазонов слишком много (Range игнорируется);
+     * пустой список — ни один диапазон не пересекается с ресурсом (416)
+     */
+    static List<Range> parse(String header, long size) {
+        if (header == null || !header.regionMatches(true, 0, "bytes=", 0, 6)) {
+            return null;
+        }
+        String[] specs = header.substring(6).split(",");
+        if (specs.length > MAX_RANGES) {
+            return null;
+        }
+        List<Range> ranges = new ArrayList<>();
+        for (String raw : specs) {
+            String spec = raw.trim();
+            int dash = spec.indexOf('-');
+            if (dash < 0) {
+                return null;
+            }
+            try {
+                if (dash == 0) {
+                    // суффикс: последние N байт
+                    long suffix = Long.parseLong(spec.substring(1));
+                    if (suffix < 0) return null;
+                    if (suffix > 0 && size > 0) {
+                        ranges.add(new Range(Math.max(0, size - suffix), size - 1));
+                    }
+                } else {
+                    long start = Long.parseLong(spec.substring(0, dash));
+                    String endText = spec.substring(dash + 1);
+                    long end = endText.isEmpty() ? Long.MAX_VALUE : Long.parseLong(endText);
+                    if (start < 0 || end < start) return null;
+                    if (start < size) {
+                        ranges.add(new Range(start, Math.min(end, size - 1)));
+                    }
+                }
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return coalesce(ranges);
+    }
+
+    private static List<Range> coalesce(List<Range> ranges) {
+        if (ranges.size() < 2) {
+            return ranges;
+        }
+        ranges.sort(Comparator.comparingLong(Range::start));
+        List<Range> merged = new ArrayList<>();
+        Range current = ranges.get(0);
+        for (int i = 1; i < ranges.size(); i++) {
+            Range next = ranges.get(i);
+            if (next.start() <= current.end() + 1) {
+                current = new Range(current.start(), Math.max(current.end(), next.end()));
+            } else {
+                merged.add(current);
+                current = next;
+            }
+        }
+        merged.add(current);
+        return merged;
+    }
+}
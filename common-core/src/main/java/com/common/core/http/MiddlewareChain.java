@@ -9,18 +9,23 @@ import java.util.List;
  * Цепочка middleware
  */
 public class MiddlewareChain {
-    private final List<Middleware> middlewares;
+    private final Middleware[] middlewares;
     private final TerminalHandler terminalHandler;
     private int currentIndex = 0;
 
     public MiddlewareChain(List<Middleware> middlewares, TerminalHandler terminalHandler) {
+        this(middlewares.toArray(new Middleware[0]), terminalHandler);
+    }
+
+    /** Цепочка поверх готового массива — массив не копируется и не должен меняться */
+    public MiddlewareChain(Middleware[] middlewares, TerminalHandler terminalHandler) {
         this.middlewares = middlewares;
         this.terminalHandler = terminalHandler;
     }
 
     public void proceed(HttpExchange exchange) throws IOException {
-        if (currentIndex < middlewares.size()) {
-            Middleware middleware = middlewares.get(currentIndex);
+        if (currentIndex < middlewares.length) {
+            Middleware middleware = middlewares[currentIndex];
             currentIndex++;
             middleware.handle(exchange, this);
         } else {
@@ -7,20 +7,138 @@ import lombok.Getter;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
- * Парсер для multipart/form-data
+ * Парсер для multipart/form-data.
+ * Тело запроса не загружается в память целиком: части читаются потоком ({@link MultipartStream}),
+ * файлы пишутся сразу во временные файлы.
  */
-@AllArgsConstructor
 public class MultipartParser {
+    /** Предел размера одной части по умолчанию */
+    public static final long DEFAULT_MAX_PART_SIZE = 4L * 1024 * 1024 * 1024;
+    private static final int MAX_FIELD_BYTES = 64 * 1024;
+    /** Пределы на все текстовые поля формы вместе: значения держатся в памяти до конца запроса */
+    private static final int MAX_FIELDS = 100;
+    private static final int MAX_TOTAL_FIELD_BYTES = 256 * 1024;
+
+    private final long maxPartSize;
+    private final Path tempDirectory;
+
+    public MultipartParser() {
+        this(DEFAULT_MAX_PART_SIZE, null);
+    }
+
+    /**
+     * @param maxPartSize   наибольший размер данных одной части в байтах
+     * @param tempDirectory каталог для временных файлов загрузок (null — системный);
+     *                      на том же диске, что и хранилище, файл потом переносится без копирования
+     */
+    public MultipartParser(long maxPartSize, Path tempDirectory) {
+        if (maxPartSize <= 0) {
+            throw new IllegalArgumentException("maxPartSize must be positive");
+        }
+        this.maxPartSize = maxPartSize;
+        this.tempDirectory = tempDirectory;
+    }
+
+    /**
+     * Загруженный файл во временном файле. Вызывающий переносит его на место
+     * или удаляет ({@link #delete()}).
+     */
     @Getter
     @AllArgsConstructor
     public static class FileUpload {
         private final String fileName;
-        private final byte[] fileData;
+        private final Path file;
+        private final long size;
+
+        /** Удаляет временный файл, если он ещё не перенесён */
+        public void delete() throws IOException {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * Все части запроса: текстовые поля и файлы (каждый — во временном файле).
+     * Части читаются по очереди из потока, в памяти держатся только значения полей.
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class Form {
+        private final Map<String, String> fields;
+        private final List<FileUpload> files;
+
+        /** Удаляет временные файлы, которые ещё не перенесены */
+        public void deleteFiles() throws IOException {
+            for (FileUpload file : files) {
+                file.delete();
+            }
+        }
     }
 
+    /**
+     * Разбирает все части запроса; файлов больше maxFiles, полей больше {@value #MAX_FIELDS}
+     * или больше {@value #MAX_TOTAL_FIELD_BYTES} байт значений полей — ошибка валидации.
+     * Файловые части с пустым именем (пустой {@code <input type=file>}) не прерывают разбор:
+     * они попадают в список, а отклонить их — дело вызывающего.
+     * При ошибке уже сохранённые временные файлы удаляются.
+     */
+    public Form parseForm(HttpExchange exchange, int maxFiles) throws IOException {
+        MultipartStream stream = openStream(exchange);
+        Map<String, String> fields = new LinkedHashMap<>();
+        List<FileUpload> files = new ArrayList<>();
+        int fieldCount = 0;
+        long fieldBytes = 0;
+        try {
+            MultipartStream.Part part;
+            while ((part = stream.nextPart()) != null) {
+                if (part.isFile()) {
+                    if (files.size() == maxFiles) {
+                        throw new ValidationException("Too many files in request, maximum is " + maxFiles);
+                    }
+                    files.add(writeTempFile(part));
+                } else if (part.getName() != null) {
+                    if (++fieldCount > MAX_FIELDS) {
+                        throw new ValidationException("Too many form fields in request, maximum is " + MAX_FIELDS);
+                    }
+                    String value = readField(part);
+                    fieldBytes += part.getSize();
+                    if (fieldBytes > MAX_TOTAL_FIELD_BYTES) {
+                        throw new ValidationException("Form fields are too large, maximum is "
+                                + MAX_TOTAL_FIELD_BYTES + " bytes in total");
+                    }
+                    fields.put(part.getName(), value);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            for (FileUpload file : files) {
+                file.delete();
+            }
+            throw e;
+        }
+        return new Form(fields, files);
+    }
+
+    /** Первая файловая часть запроса; остальные части пропускаются */
     public FileUpload parseFileUpload(HttpExchange exchange) throws IOException {
+        MultipartStream stream = openStream(exchange);
+        MultipartStream.Part part;
+        while ((part = stream.nextPart()) != null) {
+            if (part.isFile()) {
+                return saveToTempFile(part);
+            }
+        }
+        throw new ValidationException("No file found in multipart request");
+    }
+
+    /** Потоковое чтение частей запроса с проверкой Content-Type и предела размера части */
+    public MultipartStream openStream(HttpExchange exchange) {
         String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
         if (contentType == null || !contentType.startsWith("multipart/form-data")) {
             throw new ValidationException("Content-Type must be multipart/form-data");
@@ -31,87 +149,53 @@ public class MultipartParser {
             throw new ValidationException("Invalid multipart request: boundary not found");
         }
 
-        byte[] data = exchange.getRequestBody().readAllBytes();
-        return parseMultipartData(data, boundary);
+        return new MultipartStream(exchange.getRequestBody(), boundary, maxPartSize);
     }
 
-    private String extractBoundary(String contentType) {
-        String[] parts = contentType.split(";");
-        for (String part : parts) {
-            String trimmed = part.trim();
-            if (trimmed.startsWith("boundary=")) {
-                return trimmed.substring("boundary=".length());
-            }
+    /** Пишет данные файловой части во временный файл; часть без имени файла — ошибка валидации */
+    public FileUpload saveToTempFile(MultipartStream.Part part) throws IOException {
+        if (part.getFileName() == null || part.getFileName().isBlank()) {
+            throw new ValidationException("Filename not found");
         }
-        return null;
+        return writeTempFile(part);
     }
 
-    private FileUpload parseMultipartData(byte[] data, String boundary) {
-        String content = new String(data, StandardCharsets.ISO_8859_1);
-        String boundaryMarker = "--" + boundary;
-        String[] parts = content.split(boundaryMarker);
-
-        for (String part : parts) {
-            if (part.contains("Content-Disposition") && part.contains("filename=")) {
-                return parseFilePart(part);
-            }
+    private FileUpload writeTempFile(MultipartStream.Part part) throws IOException {
+        if (tempDirectory != null) {
+            Files.createDirectories(tempDirectory);
         }
-
-        throw new ValidationException("No file found in multipart request");
-    }
-
-    private FileUpload parseFilePart(String part) {
+        Path file = tempDirectory != null
+                ? Files.createTempFile(tempDirectory, ".upload-", ".part")
+                : Files.createTempFile("upload-", ".part");
         try {
-            String fileName = extractFileName(part);
-            if (fileName == null) {
-                throw new ValidationException("Filename not found");
-            }
-
-            int headerEnd = part.indexOf("\r\n\r\n");
-            if (headerEnd == -1) {
-                headerEnd = part.indexOf("\n\n");
-                if (headerEnd == -1) {
-                    throw new ValidationException("Invalid multipart part format");
-                }
-                headerEnd += 2;
-            } else {
-                headerEnd += 4;
-            }
-
-            int dataEnd = part.lastIndexOf("\r\n");
-            if (dataEnd == -1) {
-                dataEnd = part.lastIndexOf("\n");
-            }
-
-            if (dataEnd <= headerEnd) {
-                throw new ValidationException("Empty file data");
-            }
-
-            String fileContentStr = part.substring(headerEnd, dataEnd);
-            byte[] fileData = fileContentStr.getBytes(StandardCharsets.ISO_8859_1);
-
-            return new FileUpload(fileName, fileData);
-
-        } catch (ValidationException e) {
+            long size = part.transferTo(file);
+            return new FileUpload(part.getFileName(), file, size);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
             throw e;
-        } catch (Exception e) {
-            throw new ValidationException("Failed to parse file upload: " + e.getMessage());
         }
     }
 
-    private String extractFileName(String part) {
-        int filenameIndex = part.indexOf("filename=\"");
-        if (filenameIndex == -1) {
-            return null;
+    private String readField(MultipartStream.Part part) throws IOException {
+        byte[] value = part.getInputStream().readNBytes(MAX_FIELD_BYTES + 1);
+        if (value.length > MAX_FIELD_BYTES) {
+            throw new ValidationException("Form field '" + part.getName() + "' is too large");
         }
+        return new String(value, StandardCharsets.UTF_8);
+    }
 
-        int start = filenameIndex + 10;
-        int end = part.indexOf("\"", start);
-
-        if (end == -1) {
-            return null;
+    private String extractBoundary(String contentType) {
+        String[] parts = contentType.split(";");
+        for (String part : parts) {
+            String trimmed = part.trim();
+            if (trimmed.startsWith("boundary=")) {
+                String boundary = trimmed.substring("boundary=".length());
+                if (boundary.length() >= 2 && boundary.startsWith("\"") && boundary.endsWith("\"")) {
+                    boundary = boundary.substring(1, boundary.length() - 1);
+                }
+                return boundary;
+            }
         }
-
-        return part.substring(start, end);
+        return null;
     }
 }
@@ -0,0 +1,375 @@
+package com.common.core.http;
+
+import com.common.core.exception.ValidationException;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Потоковое чтение multipart/form-data.
+ * Тело запроса читается через буфер фиксированного размера, граница ищется алгоритмом
+ * Бойера–Мура–Хорспула прямо в буфере; данные части отдаются получателю без накопления в памяти.
+ * Части читаются строго по очереди: {@link #nextPart()} пропускает непрочитанный остаток предыдущей.
+ */
+public class MultipartStream {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_HEADER_BYTES = 16 * 1024;
+    private static final byte[] CRLF = {'\r', '\n'};
+
+    private final InputStream in;
+    private final long maxPartSize;
+    // "\r\n--boundary": перед первой границей CRLF дописывается в буфер искусственно
+    private final byte[] delimiter;
+    private final int[] shift = new int[256];
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int pos;
+    private int limit;
+    private boolean eof;
+    private boolean finished;
+    private Part current;
+
+    public MultipartStream(InputStream in, String boundary, long maxPartSize) {
+        byte[] boundaryBytes = boundary.getBytes(StandardCharsets.ISO_8859_1);
+        if (boundaryBytes.length == 0 || boundaryBytes.length > 200) {
+            throw new ValidationException("Invalid multipart request: bad boundary");
+        }
+        this.in = in;
+        this.maxPartSize = maxPartSize;
+        this.delimiter = new byte[boundaryBytes.length + 4];
+        delimiter[0] = '\r';
+        delimiter[1] = '\n';
+        delimiter[2] = '-';
+        delimiter[3] = '-';
+        System.arraycopy(boundaryBytes, 0, delimiter, 4, boundaryBytes.length);
+
+        Arrays.fill(shift, delimiter.length);
+        for (int i = 0; i < delimiter.length - 1; i++) {
+            shift[delimiter[i] & 0xFF] = delimiter.length - 1 - i;
+        }
+        buffer[0] = '\r';
+        buffer[1] = '\n';
+        limit = 2;
+    }
+
+    /**
+     * Переходит к следующей части и читает её заголовки.
+     * @return часть или null, если достигнута завершающая граница
+     */
+    public Part nextPart() throws IOException {
+        if (finished) {
+            return null;
+        }
+        if (current != null) {
+            current.skip();
+        } else {
+            skipToDelimiter();
+        }
+        // после границы: "--" — конец тела, иначе CRLF и заголовки части
+        ensure(2);
+        if (buffer[pos] == '-' && buffer[pos + 1] == '-') {
+            finished = true;
+            current = null;
+            return null;
+        }
+        skipLine();
+        current = new Part(readHeaders());
+        return current;
+    }
+
+    /** Преамбула до первой границы */
+    private void skipToDelimiter() throws IOException {
+        while (true) {
+            int index = indexOfDelimiter();
+            if (index >= 0) {
+                pos = index + delimiter.length;
+                return;
+            }
+            pos = Math.max(pos, limit - delimiter.length + 1);
+            if (!fill()) {
+                throw new ValidationException("Invalid multipart request: boundary not found in body");
+            }
+        }
+    }
+
+    private Map<String, String> readHeaders() throws IOException {
+        Map<String, String> headers = new HashMap<>();
+        int headerBytes = 0;
+        while (true) {
+            String line = readLine();
+            if (line.isEmpty()) {
+                return headers;
+            }
+            headerBytes += line.length();
+            if (headerBytes > MAX_HEADER_BYTES) {
+                throw new ValidationException("Multipart part headers are too large");
+            }
+            int colon = line.indexOf(':');
+            if (colon > 0) {
+                headers.put(line.substring(0, colon).trim().toLowerCase(Locale.ROOT), line.substring(colon + 1).trim());
+            }
+        }
+    }
+
+    /** Строка до CRLF в UTF-8 (браузеры передают имена файлов в UTF-8) */
+    private String readLine() throws IOException {
+        while (true) {
+            int end = indexOf(CRLF, pos, limit);
+            if (end >= 0) {
+                String line = new String(buffer, pos, end - pos, StandardCharsets.UTF_8);
+                pos = end + 2;
+                return line;
+            }
+            if (limit - pos >= MAX_HEADER_BYTES) {
+                throw new ValidationException("Multipart part headers are too large");
+            }
+            if (!fill()) {
+                throw new ValidationException("Unexpected end of multipart body");
+            }
+        }
+    }
+
+    /** Остаток строки после границы (допускается пробельное заполнение перед CRLF) */
+    private void skipLine() throws IOException {
+        readLine();
+    }
+
+    /**
+     * Сколько байт данных текущей части лежит в буфере начиная с pos; 0 — часть закончилась
+     * (pos при этом переставлен за границу), -1 не бывает: конец тела без границы — ошибка.
+     */
+    private int available() throws IOException {
+        while (true) {
+            int index = indexOfDelimiter();
+            if (index == pos) {
+                pos += delimiter.length;
+                return 0;
+            }
+            if (index > pos) {
+                return index - pos;
+            }
+            // граница может начинаться в последних delimiter.length - 1 байтах буфера
+            int safe = limit - pos - (delimiter.length - 1);
+            if (safe > 0) {
+                return safe;
+            }
+            if (!fill()) {
+                throw new ValidationException("Unexpected end of multipart body");
+            }
+        }
+    }
+
+    /** Бойер–Мур–Хорспул по buffer[pos, limit) */
+    private int indexOfDelimiter() {
+        int last = delimiter.length - 1;
+        int i = pos;
+        while (i + last < limit) {
+            int j = last;
+            while (buffer[i + j] == delimiter[j]) {
+                if (j == 0) return i;
+                j--;
+            }
+            i += shift[buffer[i + last] & 0xFF];
+        }
+        return -1;
+    }
+
+    private int indexOf(byte[] pattern, int from, int to) {
+        outer:
+        for (int i = from; i + pattern.length <= to; i++) {
+            for (int j = 0; j < pattern.length; j++) {
+                if (buffer[i + j] != pattern[j]) continue outer;
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private void ensure(int bytes) throws IOException {
+        while (limit - pos < bytes) {
+            if (!fill()) {
+                throw new ValidationException("Unexpected end of multipart body");
+            }
+        }
+    }
+
+    /** Сдвигает непрочитанное в начало буфера и дочитывает; false — поток закончился */
+    private boolean fill() throws IOException {
+        if (eof) {
+            return false;
+        }
+        if (pos > 0) {
+            System.arraycopy(buffer, pos, buffer, 0, limit - pos);
+            limit -= pos;
+            pos = 0;
+        }
+        if (limit == buffer.length) {
+            return true;
+        }
+        int read = in.read(buffer, limit, buffer.length - limit);
+        if (read < 0) {
+            eof = true;
+            return false;
+        }
+        limit += read;
+        return true;
+    }
+
+    /**
+     * Часть multipart-тела: заголовки и данные, которые читаются один раз —
+     * через {@link #transferTo(WritableByteChannel)}, {@link #transferTo(Path)} или {@link #getInputStream()}.
+     */
+    public class Part {
+        @Getter
+        private final Map<String, String> headers;
+        @Getter
+        private final String name;
+        @Getter
+        private final String fileName;
+        @Getter
+        private long size;
+        private boolean done;
+
+        private Part(Map<String, String> headers) {
+            this.headers = headers;
+            Map<String, String> disposition = parseParameters(headers.get("content-disposition"));
+            this.name = disposition.get("name");
+            this.fileName = disposition.get("filename");
+        }
+
+        public String getContentType() {
+            return headers.get("content-type");
+        }
+
+        /** true, если часть — файл (в Content-Disposition есть filename) */
+        public boolean isFile() {
+            return fileName != null;
+        }
+
+        /** Пишет данные части в канал прямо из буфера разбора; возвращает число байт */
+        public long transferTo(WritableByteChannel channel) throws IOException {
+            checkCurrent();
+            long written = 0;
+            int chunk;
+            while ((chunk = nextChunk()) > 0) {
+                ByteBuffer slice = ByteBuffer.wrap(buffer, pos, chunk);
+                while (slice.hasRemaining()) {
+                    channel.write(slice);
+                }
+                pos += chunk;
+                written += chunk;
+            }
+            return written;
+        }
+
+        /** Пишет данные части в файл (создаёт или перезаписывает) */
+        public long transferTo(Path file) throws IOException {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                return transferTo(channel);
+            }
+        }
+
+        /** Данные части как поток; конец потока — граница следующей части */
+        public InputStream getInputStream() {
+            checkCurrent();
+            return new InputStream() {
+                @Override
+                public int read() throws IOException {
+                    byte[] one = new byte[1];
+                    return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+                }
+
+                @Override
+                public int read(byte[] target, int offset, int length) throws IOException {
+                    if (length == 0) return 0;
+                    int chunk = nextChunk();
+                    if (chunk == 0) return -1;
+                    int count = Math.min(chunk, length);
+                    System.arraycopy(buffer, pos, target, offset, count);
+                    pos += count;
+                    return count;
+                }
+            };
+        }
+
+        private int nextChunk() throws IOException {
+            if (done) {
+                return 0;
+            }
+            int chunk = available();
+            if (chunk == 0) {
+                done = true;
+                return 0;
+            }
+            size += chunk;
+            if (size > maxPartSize) {
+                throw new ValidationException("Multipart part exceeds maximum size of " + maxPartSize + " bytes");
+            }
+            return chunk;
+        }
+
+        private void skip() throws IOException {
+            while (!done) {
+                int chunk = available();
+                if (chunk == 0) {
+                    done = true;
+                } else {
+                    pos += chunk;
+                }
+            }
+        }
+
+        private void checkCurrent() {
+            if (current != this) {
+                throw new IllegalStateException("Multipart part has already been skipped");
+            }
+        }
+    }
+
+    /** Параметры заголовка вида {@code form-data; name="file"; filename="a;b.txt"} */
+    private static Map<String, String> parseParameters(String header) {
+        Map<String, String> parameters = new HashMap<>();
+        if (header == null) {
+            return parameters;
+        }
+        int i = header.indexOf(';');
+        while (i >= 0 && i < header.length()) {
+            int eq = header.indexOf('=', i);
+            if (eq < 0) break;
+            String key = header.substring(i + 1, eq).trim().toLowerCase(Locale.ROOT);
+            int start = eq + 1;
+            String value;
+            if (start < header.length() && header.charAt(start) == '"') {
+                StringBuilder quoted = new StringBuilder();
+                int j = start + 1;
+                while (j < header.length() && header.charAt(j) != '"') {
+                    char c = header.charAt(j);
+                    if (c == '\\' && j + 1 < header.length()) {
+                        c = header.charAt(++j);
+                    }
+                    quoted.append(c);
+                    j++;
+                }
+                value = quoted.toString();
+                i = header.indexOf(';', j);
+            } else {
+                int end = header.indexOf(';', start);
+                value = header.substring(start, end < 0 ? header.length() : end).trim();
+                i = end;
+            }
+            parameters.put(key, value);
+        }
+        return parameters;
+    }
+}
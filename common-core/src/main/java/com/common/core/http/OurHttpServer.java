@@ -1,26 +1,68 @@
 package com.common.core.http;
 
+import com.common.core.config.Config;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 import com.sun.net.httpserver.HttpServer;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
- * Универсальный HTTP сервер
+ * Универсальный HTTP сервер.
+ * Модель выполнения запросов задаётся в {@link Config} (server.executor):
+ * <ul>
+ *     <li>virtual — поток на запрос на виртуальных потоках (JDK 21+); на более старой JDK —
+ *     ограниченный пул, как bounded;</li>
+ *     <li>bounded — server.threads потоков и очередь на server.queue.capacity запросов;
+ *     запросы сверх очереди получают 503 без маршрутизации.</li>
+ * </ul>
+ * Чтение запроса в JDK HttpServer блокирующее, поэтому его время ограничено server.max.request.seconds
+ * (свойство JDK sun.net.httpserver.maxReqTime): соединение, не дочитанное за это время, закрывается.
+ * В предел входит и чтение тела, так что он должен покрывать самую долгую загрузку файла.
+ * JDK читает свойство один раз при первом создании HttpServer в JVM; явно заданное через -D не переопределяется.
  */
 public class OurHttpServer {
+    private static final String EXECUTOR_VIRTUAL = "virtual";
+    private static final String EXECUTOR_BOUNDED = "bounded";
+    private static final int DEFAULT_THREADS = 10;
+    private static final int DEFAULT_QUEUE_CAPACITY = 100;
+    private static final int DEFAULT_MAX_REQUEST_SECONDS = 600;
+    private static final String MAX_REQ_TIME_PROPERTY = "sun.net.httpserver.maxReqTime";
+
+    // выставляется на время обработки запроса, не поместившегося в очередь пула
+    private static final ThreadLocal<Boolean> REJECTED = ThreadLocal.withInitial(() -> false);
+
     private final HttpServer server;
     private final Router router;
+    private final ExecutorService executor;
 
     public OurHttpServer(int port, Router router) throws IOException {
+        this(port, router, boundedExecutor(DEFAULT_THREADS, DEFAULT_QUEUE_CAPACITY), DEFAULT_MAX_REQUEST_SECONDS);
+    }
+
+    public OurHttpServer(Config config, Router router) throws IOException {
+        this(config.getServerPort(), router,
+                createExecutor(config.getServerExecutor(), config.getServerThreads(), config.getServerQueueCapacity()),
+                config.getServerMaxRequestSeconds());
+    }
+
+    private OurHttpServer(int port, Router router, ExecutorService executor, int maxRequestSeconds) throws IOException {
+        if (maxRequestSeconds > 0 && System.getProperty(MAX_REQ_TIME_PROPERTY) == null) {
+            System.setProperty(MAX_REQ_TIME_PROPERTY, Integer.toString(maxRequestSeconds));
+        }
         this.server = HttpServer.create(new InetSocketAddress(port), 0);
         this.router = router;
+        this.executor = executor;
 
         server.createContext("/", new RequestHandler());
-        server.setExecutor(Executors.newFixedThreadPool(10));
+        server.setExecutor(executor);
     }
 
     public void start() {
@@ -29,11 +71,88 @@ public class OurHttpServer {
 
     public void stop() {
         server.stop(0);
+        executor.shutdown();
+    }
+
+    private static ExecutorService createExecutor(String mode, int threads, int queueCapacity) {
+        return switch (mode) {
+            case EXECUTOR_VIRTUAL -> {
+                ExecutorService virtual = virtualExecutor();
+                if (virtual != null) {
+                    System.out.println("HTTP executor: virtual threads");
+                    yield virtual;
+                }
+                System.out.println("HTTP executor: virtual threads unavailable, using bounded pool");
+                yield boundedExecutor(threads, queueCapacity);
+            }
+            case EXECUTOR_BOUNDED -> {
+                System.out.println("HTTP executor: bounded pool, threads " + threads + ", queue " + queueCapacity);
+                yield boundedExecutor(threads, queueCapacity);
+            }
+            default -> throw new IllegalArgumentException("Неизвестный server.executor: " + mode
+                    + " (ожидается " + EXECUTOR_VIRTUAL + " или " + EXECUTOR_BOUNDED + ")");
+        };
+    }
+
+    /**
+     * Executors.newVirtualThreadPerTaskExecutor() через reflection: модуль собирается под Java 17,
+     * а виртуальные потоки появляются только при запуске на JDK 21+
+     */
+    private static ExecutorService virtualExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Пул с очередью фиксированной длины. Запрос, не поместившийся в очередь, передаётся пулу отказов
+     * того же размера, который только отвечает 503 — маршрут не вызывается, а диспетчер сервера
+     * не читает запрос из сокета. Если переполнен и пул отказов, 503 отвечает поток диспетчера;
+     * чтение запроса тогда ограничено server.max.request.seconds
+     */
+    private static ExecutorService boundedExecutor(int threads, int queueCapacity) {
+        if (threads < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("server.threads и server.queue.capacity должны быть положительными");
+        }
+        ThreadPoolExecutor rejections = new ThreadPoolExecutor(threads, threads, 10L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), task -> {
+                    Thread thread = new Thread(task, "http-reject");
+                    thread.setDaemon(true);
+                    return thread;
+                }, (task, pool) -> task.run());
+        rejections.allowCoreThreadTimeOut(true);
+        RejectedExecutionHandler reject = (task, pool) -> {
+            if (pool.isShutdown()) return;
+            rejections.execute(() -> {
+                REJECTED.set(true);
+                try {
+                    task.run();
+                } finally {
+                    REJECTED.remove();
+                }
+            });
+        };
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), reject) {
+            @Override
+            protected void terminated() {
+                rejections.shutdown();
+            }
+        };
     }
 
     private class RequestHandler implements HttpHandler {
         @Override
         public void handle(HttpExchange exchange) throws IOException {
+            if (REJECTED.get()) {
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                exchange.getResponseHeaders().set("Connection", "close");
+                exchange.sendResponseHeaders(503, -1);
+                exchange.close();
+                return;
+            }
             router.route(exchange);
         }
     }
@@ -6,6 +6,7 @@ import com.sun.net.httpserver.HttpExchange;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.nio.file.Path;
 import java.util.Map;
 import java.util.stream.Collectors;
 
@@ -28,6 +29,11 @@ public abstract class PrimaryHandler {
         responseHelper.sendBinary(exchange, statusCode, data, contentType, fileName);
     }
 
+    protected boolean sendFile(HttpExchange exchange, Path file, String contentType, String fileName,
+                               String etag, long lastModified) throws IOException {
+        return responseHelper.sendFile(exchange, file, contentType, fileName, etag, lastModified);
+    }
+
     protected void sendJsonResponse(HttpExchange exchange, int statusCode, Object data) throws IOException {
         responseHelper.sendJson(exchange, statusCode, data);
     }
@@ -36,6 +42,10 @@ public abstract class PrimaryHandler {
         return multipartParser.parseFileUpload(exchange);
     }
 
+    protected MultipartParser.Form parseForm(HttpExchange exchange, int maxFiles) throws IOException {
+        return multipartParser.parseForm(exchange, maxFiles);
+    }
+
     protected <T> T parseRequestBody(HttpExchange exchange, Class<T> clazz) throws IOException {
         String requestBody = new BufferedReader(
                         new InputStreamReader(exchange.getRequestBody()))
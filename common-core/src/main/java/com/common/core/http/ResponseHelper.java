@@ -1,17 +1,37 @@
 package com.common.core.http;
 
 import com.google.gson.Gson;
+import com.sun.net.httpserver.Headers;
 import com.sun.net.httpserver.HttpExchange;
 import lombok.AllArgsConstructor;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
 
 /**
  * Утилита для отправки HTTP ответов
  */
 @AllArgsConstructor
 public class ResponseHelper {
+    private static final DateTimeFormatter IMF_FIXDATE =
+            DateTimeFormatter.ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US);
+
     private final Gson gson;
 
     public void sendJson(HttpExchange exchange, int statusCode, Object data) throws IOException {
@@ -36,4 +56,163 @@ public class ResponseHelper {
             os.write(data);
         }
     }
+
+    /**
+     * Отправляет файл с поддержкой условных запросов и диапазонов. Данные идут из FileChannel
+     * через transferTo без промежуточного массива, длина ответа известна заранее.
+     * If-None-Match / If-Modified-Since при совпадении валидаторов дают 304 без чтения файла;
+     * Range (с учётом If-Range) — 206 с одним диапазоном или multipart/byteranges с несколькими,
+     * 416 — если ни один диапазон не пересекается с файлом.
+     *
+     * @param etag         строгий ETag в кавычках
+     * @param lastModified время изменения в миллисекундах (в заголовках — с точностью до секунды)
+     * @return true, если файл отдан с начала: 200 или 206, первый диапазон которого начинается с нуля.
+     * 304, 416 и докачка с середины скачиваниями не считаются
+     */
+    public boolean sendFile(HttpExchange exchange, Path file, String contentType, String fileName,
+                         String etag, long lastModified) throws IOException {
+        Headers request = exchange.getRequestHeaders();
+        Headers response = exchange.getResponseHeaders();
+        long lastModifiedSeconds = lastModified / 1000;
+        response.set("ETag", etag);
+        response.set("Last-Modified", formatHttpDate(lastModifiedSeconds));
+        response.set("Accept-Ranges", "bytes");
+
+        if (notModified(request, etag, lastModifiedSeconds)) {
+            exchange.sendResponseHeaders(304, -1);
+            exchange.close();
+            return false;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            response.set("Content-Disposition", "attachment; filename=\"" + fileName + "\"");
+
+            List<ByteRanges.Range> ranges = rangeApplies(request, etag, lastModifiedSeconds)
+                    ? ByteRanges.parse(request.getFirst("Range"), size)
+                    : null;
+            if (ranges == null || size == 0) {
+                response.set("Content-Type", contentType);
+                exchange.sendResponseHeaders(200, size == 0 ? -1 : size);
+                try (OutputStream os = exchange.getResponseBody()) {
+                    transfer(channel, 0, size, os);
+                }
+                return true;
+            }
+            if (ranges.isEmpty()) {
+                response.set("Content-Range", "bytes */" + size);
+                exchange.sendResponseHeaders(416, -1);
+                exchange.close();
+                return false;
+            }
+            if (ranges.size() == 1) {
+                ByteRanges.Range range = ranges.get(0);
+                response.set("Content-Type", contentType);
+                response.set("Content-Range", range.contentRange(size));
+                exchange.sendResponseHeaders(206, range.length());
+                try (OutputStream os = exchange.getResponseBody()) {
+                    transfer(channel, range.start(), range.length(), os);
+                }
+            } else {
+                sendByteRanges(exchange, channel, size, ranges, contentType);
+            }
+            // диапазоны упорядочены по началу
+            return ranges.get(0).start() == 0;
+        }
+    }
+
+    /** 206 multipart/byteranges; длина ответа считается заранее по заголовкам частей */
+    private void sendByteRanges(HttpExchange exchange, FileChannel channel, long size,
+                                List<ByteRanges.Range> ranges, String contentType) throws IOException {
+        String boundary = UUID.randomUUID().toString().replace("-", "");
+        List<byte[]> partHeaders = new ArrayList<>(ranges.size());
+        long length = 0;
+        for (int i = 0; i < ranges.size(); i++) {
+            ByteRanges.Range range = ranges.get(i);
+            String header = (i == 0 ? "" : "\r\n") + "--" + boundary + "\r\n"
+                    + "Content-Type: " + contentType + "\r\n"
+                    + "Content-Range: " + range.contentRange(size) + "\r\n\r\n";
+            byte[] bytes = header.getBytes(StandardCharsets.ISO_8859_1);
+            partHeaders.add(bytes);
+            length += bytes.length + range.length();
+        }
+        byte[] closing = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.ISO_8859_1);
+        length += closing.length;
+
+        exchange.getResponseHeaders().set("Content-Type", "multipart/byteranges; boundary=" + boundary);
+        exchange.sendResponseHeaders(206, length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            for (int i = 0; i < ranges.size(); i++) {
+                ByteRanges.Range range = ranges.get(i);
+                os.write(partHeaders.get(i));
+                transfer(channel, range.start(), range.length(), os);
+            }
+            os.write(closing);
+        }
+    }
+
+    /** If-None-Match главнее If-Modified-Since (RFC 9110, 13.2.2) */
+    private boolean notModified(Headers request, String etag, long lastModifiedSeconds) {
+        String ifNoneMatch = request.getFirst("If-None-Match");
+        if (ifNoneMatch != null) {
+            for (String candidate : ifNoneMatch.split(",")) {
+                String tag = candidate.trim();
+                // слабое сравнение: W/ не учитывается
+                if (tag.equals("*") || stripWeak(tag).equals(stripWeak(etag))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        long since = parseHttpDate(request.getFirst("If-Modified-Since"));
+        return since >= 0 && lastModifiedSeconds <= since;
+    }
+
+    /** Range учитывается, если нет If-Range или If-Range совпадает с текущей версией файла */
+    private boolean rangeApplies(Headers request, String etag, long lastModifiedSeconds) {
+        String ifRange = request.getFirst("If-Range");
+        if (ifRange == null) {
+            return true;
+        }
+        ifRange = ifRange.trim();
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            // строгое сравнение: слабый тег никогда не совпадает
+            return ifRange.equals(etag);
+        }
+        return parseHttpDate(ifRange) == lastModifiedSeconds;
+    }
+
+    private static String stripWeak(String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+
+    /** IMF-fixdate (RFC 9110, 5.6.7): день всегда из двух цифр, зона — GMT */
+    private static String formatHttpDate(long epochSeconds) {
+        return IMF_FIXDATE.format(Instant.ofEpochSecond(epochSeconds).atOffset(ZoneOffset.UTC));
+    }
+
+    /** Секунды эпохи или -1, если заголовка нет или дата не разобрана */
+    private static long parseHttpDate(String value) {
+        if (value == null) {
+            return -1;
+        }
+        try {
+            return ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME).toEpochSecond();
+        } catch (DateTimeParseException e) {
+            return -1;
+        }
+    }
+
+    /** Пишет count байт файла начиная с position; transferTo может передать меньше запрошенного */
+    private void transfer(FileChannel channel, long position, long count, OutputStream os) throws IOException {
+        WritableByteChannel target = Channels.newChannel(os);
+        long sent = 0;
+        while (sent < count) {
+            long written = channel.transferTo(position + sent, count - sent, target);
+            if (written <= 0) {
+                throw new EOFException("File truncated while sending");
+            }
+            sent += written;
+        }
+    }
 }
@@ -5,19 +5,32 @@ import com.sun.net.httpserver.HttpExchange;
 
 import java.io.IOException;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
- * Стандартная реализация роутера с поддержкой HTTP методов, path parameters и middleware
+ * Стандартная реализация роутера с поддержкой HTTP методов, path parameters и middleware.
+ * Маршруты хранятся в дереве сегментов пути, отдельном для каждого метода: статический сегмент
+ * проверяется раньше {@code {param}}, значения параметров собираются за один проход по пути.
+ * Цепочка middleware (глобальные + маршрута) собирается в массив при регистрации маршрута.
  */
 public class StandardRouter implements Router {
+    private static final Middleware[] NO_MIDDLEWARES = new Middleware[0];
+    private static final MiddlewareChain.TerminalHandler NOT_FOUND = exchange -> {
+        throw new NotFoundException("Endpoint not found: " + exchange.getRequestURI().getPath());
+    };
+
     private final List<Middleware> globalMiddlewares = new ArrayList<>();
+    private final Map<String, Node> trees = new HashMap<>();
     private final List<Route> routes = new ArrayList<>();
+    private Middleware[] notFoundChain = NO_MIDDLEWARES;
     private Middleware exceptionHandler;
 
     public StandardRouter use(Middleware middleware) {
         globalMiddlewares.add(middleware);
+        // глобальный middleware добавлен после маршрутов — их цепочки собираются заново
+        for (Route route : routes) {
+            route.chain = concat(route.middlewares);
+        }
+        notFoundChain = concat(NO_MIDDLEWARES);
         return this;
     }
 
@@ -47,7 +60,28 @@ public class StandardRouter implements Router {
     }
 
     private StandardRouter addRoute(String method, String path, MiddlewareChain.TerminalHandler handler, Middleware... middlewares) {
-        routes.add(new Route(method, path, handler, middlewares));
+        List<String> paramNames = new ArrayList<>();
+        Node node = trees.computeIfAbsent(method, m -> new Node());
+        for (String segment : segments(path)) {
+            if (segment.startsWith("{") && segment.endsWith("}") && segment.length() > 2) {
+                paramNames.add(segment.substring(1, segment.length() - 1));
+                if (node.param == null) {
+                    node.param = new Node();
+                }
+                node = node.param;
+            } else if (segment.indexOf('{') >= 0 || segment.indexOf('}') >= 0) {
+                throw new IllegalArgumentException("Параметр должен занимать весь сегмент пути: " + path);
+            } else {
+                node = node.statics.computeIfAbsent(segment, s -> new Node());
+            }
+        }
+        if (node.route != null) {
+            throw new IllegalArgumentException("Маршрут уже зарегистрирован: " + method + " " + path);
+        }
+        Route route = new Route(handler, middlewares, paramNames.toArray(new String[0]));
+        route.chain = concat(middlewares);
+        node.route = route;
+        routes.add(route);
         return this;
     }
 
@@ -56,16 +90,7 @@ public class StandardRouter implements Router {
         String path = exchange.getRequestURI().getPath();
         String method = exchange.getRequestMethod();
 
-        Route matchedRoute = findRoute(method, path, exchange);
-
-        if (matchedRoute == null) {
-            matchedRoute = createNotFoundRoute(path);
-        }
-
-        List<Middleware> middlewareList = new ArrayList<>(globalMiddlewares);
-        middlewareList.addAll(Arrays.asList(matchedRoute.middlewares));
-
-        MiddlewareChain middlewareChain = new MiddlewareChain(middlewareList, matchedRoute.handler);
+        MiddlewareChain middlewareChain = findRoute(method, path, exchange);
 
         if (exceptionHandler != null) {
             exceptionHandler.handle(exchange, middlewareChain);
@@ -74,86 +99,82 @@ public class StandardRouter implements Router {
         }
     }
 
-    private Route findRoute(String method, String path, HttpExchange exchange) {
-        for (Route route : routes) {
-            if (route.matches(method, path)) {
-                Map<String, String> pathParams = route.extractPathParams(path);
+    private MiddlewareChain findRoute(String method, String path, HttpExchange exchange) {
+        Node root = trees.get(method);
+        if (root != null) {
+            String[] segments = segments(path).toArray(new String[0]);
+            String[] values = new String[segments.length];
+            Route route = match(root, segments, 0, values, 0);
+            if (route != null) {
+                Map<String, String> pathParams = new HashMap<>();
+                for (int i = 0; i < route.paramNames.length; i++) {
+                    pathParams.put(route.paramNames[i], values[i]);
+                }
                 exchange.setAttribute("pathParams", pathParams);
-                return route;
+                return new MiddlewareChain(route.chain, route.handler);
             }
         }
-        return null;
-    }
-
-    private Route createNotFoundRoute(String path) {
-        return new Route("*", "*", (ex) -> {
-            throw new NotFoundException("Endpoint not found: " + path);
-        });
+        return new MiddlewareChain(notFoundChain, NOT_FOUND);
     }
 
-    private static class Route {
-        private final String method;
-        private final String path;
-        private final MiddlewareChain.TerminalHandler handler;
-        private final Middleware[] middlewares;
-        private final Pattern pathPattern;
-        private final List<String> paramNames;
-
-        public Route(String method, String path, MiddlewareChain.TerminalHandler handler, Middleware... middlewares) {
-            this.method = method;
-            this.path = path;
-            this.handler = handler;
-            this.middlewares = middlewares;
-
-            PathPatternResult result = compilePathPattern(path);
-            this.pathPattern = result.pattern;
-            this.paramNames = result.paramNames;
+    /**
+     * Спуск по дереву: сначала статический сегмент, при неудаче — параметр (непустой сегмент).
+     * values[paramCount..] заполняются значениями параметров по пути к найденному маршруту
+     */
+    private static Route match(Node node, String[] segments, int index, String[] values, int paramCount) {
+        if (index == segments.length) {
+            return node.route;
         }
-
-        public boolean matches(String method, String path) {
-            if (!this.method.equals(method)) {
-                return false;
-            }
-            return pathPattern.matcher(path).matches();
+        String segment = segments[index];
+        Node child = node.statics.get(segment);
+        if (child != null) {
+            Route route = match(child, segments, index + 1, values, paramCount);
+            if (route != null) return route;
         }
+        if (node.param != null && !segment.isEmpty()) {
+            values[paramCount] = segment;
+            return match(node.param, segments, index + 1, values, paramCount + 1);
+        }
+        return null;
+    }
 
-        public Map<String, String> extractPathParams(String path) {
-            Map<String, String> params = new HashMap<>();
-            Matcher matcher = pathPattern.matcher(path);
-
-            if (matcher.matches()) {
-                for (int i = 0; i < paramNames.size(); i++) {
-                    params.put(paramNames.get(i), matcher.group(i + 1));
-                }
+    /** Сегменты пути без ведущего '/'; пустые сегменты сохраняются, так что "/a/" и "/a" различаются */
+    private static List<String> segments(String path) {
+        List<String> segments = new ArrayList<>();
+        int start = path.startsWith("/") ? 1 : 0;
+        while (true) {
+            int slash = path.indexOf('/', start);
+            if (slash < 0) {
+                segments.add(path.substring(start));
+                return segments;
             }
-
-            return params;
+            segments.add(path.substring(start, slash));
+            start = slash + 1;
         }
+    }
 
-        private static PathPatternResult compilePathPattern(String path) {
-            List<String> paramNames = new ArrayList<>();
-            String regex = path;
-            Pattern paramPattern = Pattern.compile("\\{([^/]+)\\}");
-            Matcher matcher = paramPattern.matcher(path);
-
-            while (matcher.find()) {
-                String paramName = matcher.group(1);
-                paramNames.add(paramName);
-                regex = regex.replace("{" + paramName + "}", "([^/]+)");
-            }
+    private Middleware[] concat(Middleware[] routeMiddlewares) {
+        Middleware[] chain = globalMiddlewares.toArray(new Middleware[globalMiddlewares.size() + routeMiddlewares.length]);
+        System.arraycopy(routeMiddlewares, 0, chain, globalMiddlewares.size(), routeMiddlewares.length);
+        return chain;
+    }
 
-            Pattern compiled = Pattern.compile("^" + regex + "$");
-            return new PathPatternResult(compiled, paramNames);
-        }
+    private static class Node {
+        private final Map<String, Node> statics = new HashMap<>();
+        private Node param;
+        private Route route;
+    }
 
-        private static class PathPatternResult {
-            final Pattern pattern;
-            final List<String> paramNames;
+    private static class Route {
+        private final MiddlewareChain.TerminalHandler handler;
+        private final Middleware[] middlewares;
+        private final String[] paramNames;
+        private Middleware[] chain;
 
-            PathPatternResult(Pattern pattern, List<String> paramNames) {
-                this.pattern = pattern;
-                this.paramNames = paramNames;
-            }
+        Route(MiddlewareChain.TerminalHandler handler, Middleware[] middlewares, String[] paramNames) {
+            this.handler = handler;
+            this.middlewares = middlewares.clone();
+            this.paramNames = paramNames;
         }
     }
 }
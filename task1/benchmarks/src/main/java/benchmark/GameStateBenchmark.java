@@ -0,0 +1,84 @@
+package benchmark;
+
+import models.GameState;
+import models.MutableState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Микробенчмарки операций над состоянием: генерация детей и эвристика.
+ * Состояния берутся по кругу из фиксированного набора, чтобы JIT не
+ * специализировался на одной позиции.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameStateBenchmark {
+    private static final int CORPUS_SIZE = 32;
+
+    @Param({"4", "8", "12"})
+    public int colors;
+
+    @Param({"4"})
+    public int capacity;
+
+    private GameState[] states;
+    private MutableState[] working;
+    private int cursor;
+
+    @Setup
+    public void setUp() {
+        List<GameState> puzzles = PuzzleCorpus.corpus(colors, capacity, CORPUS_SIZE, 42);
+        states = PuzzleCorpus.midSearchStates(puzzles, 5, 7).toArray(new GameState[0]);
+        working = new MutableState[states.length];
+        for (int i = 0; i < states.length; i++) {
+            working[i] = states[i].toMutable();
+        }
+    }
+
+    private int next() {
+        int index = cursor;
+        cursor = index + 1 == states.length ? 0 : index + 1;
+        return index;
+    }
+
+    @Benchmark
+    public List<GameState> createChildren() {
+        return states[next()].createChildren();
+    }
+
+    /** Генерация детей с фильтром, отклоняющим все ходы (как при попадании в закрытое множество) */
+    @Benchmark
+    public List<GameState> createChildrenAllRejected() {
+        return states[next()].createChildren(candidate -> false);
+    }
+
+    /**
+     * Эвристика кэшируется в состоянии, поэтому измеряется на свежем снимке.
+     * Стоимость самого снимка — в {@link #freezeBaseline()}.
+     */
+    @Benchmark
+    public int calculateHeuristic() {
+        return working[next()].freeze(null, -1, -1).calculateHeuristic();
+    }
+
+    @Benchmark
+    public GameState freezeBaseline() {
+        return working[next()].freeze(null, -1, -1);
+    }
+}
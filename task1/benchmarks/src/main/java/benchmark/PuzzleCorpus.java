@@ -0,0 +1,93 @@
+package benchmark;
+
+import models.GameState;
+import models.PuzzleGenerator;
+import models.Tube;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Фиксированный набор головоломок для бенчмарков.
+ * Капли всех цветов перемешиваются генератором с заданным seed и раскладываются
+ * по полным пробиркам, плюс несколько пустых — одинаковый вход при каждом запуске.
+ * Такие головоломки могут не иметь решения; {@link Source#SCRAMBLED} даёт
+ * только решаемые — перемешанные обратными ходами ({@link PuzzleGenerator}).
+ */
+public final class PuzzleCorpus {
+    /** Сколько обратных ходов на каждую каплю делает {@link Source#SCRAMBLED} */
+    public static final int SCRAMBLE_MOVES_PER_BALL = 2;
+
+    /** Способ получения головоломок */
+    public enum Source {
+        /** Случайная раскладка капель по полным пробиркам */
+        SHUFFLED,
+        /** Решённое состояние, перемешанное обратными ходами — решение гарантировано */
+        SCRAMBLED
+    }
+
+    private PuzzleCorpus() {
+    }
+
+    /** Одна головоломка: colors цветов по capacity капель, emptyTubes пустых пробирок */
+    public static GameState generate(int colors, int capacity, int emptyTubes, long seed) {
+        List<Integer> balls = new ArrayList<>(colors * capacity);
+        for (int color = 1; color <= colors; color++) {
+            for (int k = 0; k < capacity; k++) {
+                balls.add(color);
+            }
+        }
+        Collections.shuffle(balls, new Random(seed));
+
+        List<Tube> tubes = new ArrayList<>(colors + emptyTubes);
+        for (int t = 0; t < colors; t++) {
+            Deque<Integer> stack = new ArrayDeque<>(balls.subList(t * capacity, (t + 1) * capacity));
+            tubes.add(new Tube(stack, capacity));
+        }
+        for (int t = 0; t < emptyTubes; t++) {
+            tubes.add(new Tube(new ArrayDeque<>(), capacity));
+        }
+        return new GameState(tubes);
+    }
+
+    /** count головоломок с последовательными seed, начиная с baseSeed */
+    public static List<GameState> corpus(int colors, int capacity, int count, long baseSeed) {
+        return corpus(Source.SHUFFLED, colors, capacity, 2, count, baseSeed);
+    }
+
+    /** count головоломок из source: colors цветов по capacity капель и emptyTubes дополнительных пробирок */
+    public static List<GameState> corpus(Source source, int colors, int capacity, int emptyTubes, int count, long baseSeed) {
+        PuzzleGenerator generator = new PuzzleGenerator(colors, capacity, colors + emptyTubes);
+        int scrambleMoves = SCRAMBLE_MOVES_PER_BALL * colors * capacity;
+        List<GameState> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(source == Source.SHUFFLED
+                    ? generate(colors, capacity, emptyTubes, baseSeed + i)
+                    : generator.generate(scrambleMoves, baseSeed + i));
+        }
+        return result;
+    }
+
+    /**
+     * Состояния из середины поиска: к каждой головоломке применяется
+     * случайная цепочка ходов, чтобы бенчмарки не работали только с начальными позициями.
+     */
+    public static List<GameState> midSearchStates(List<GameState> puzzles, int walkLength, long seed) {
+        Random random = new Random(seed);
+        List<GameState> result = new ArrayList<>(puzzles.size());
+        for (GameState puzzle : puzzles) {
+            GameState state = puzzle;
+            for (int step = 0; step < walkLength; step++) {
+                List<GameState> children = state.createChildren();
+                if (children.isEmpty()) break;
+                state = children.get(random.nextInt(children.size()));
+            }
+            result.add(state);
+        }
+        return result;
+    }
+}
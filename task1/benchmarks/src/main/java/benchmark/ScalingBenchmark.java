@@ -0,0 +1,168 @@
+package benchmark;
+
+import models.GameState;
+import search.SearchBudget;
+
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Прогон решателя по сетке параметров (цвета × объём × пустые пробирки), по умолчанию на решаемых
+ * головоломках {@link PuzzleCorpus.Source#SCRAMBLED}. Для каждой головоломки в CSV пишутся
+ * раскрытые состояния, пик кучи и время — по кривой видно, как поиск масштабируется
+ * и где он стал хуже после изменения.
+ * <p>
+ * Это не JMH-бенчмарк: каждая головоломка решается один раз. Запуск:
+ * {@code java -cp benchmarks.jar benchmark.ScalingBenchmark --colors 3,4,5,6 --capacity 3,4 --out scaling.csv}
+ * <p>
+ * С {@code --pdb <каталог>} поиск идёт с допустимой эвристикой на базах образцов (кратчайшие
+ * решения, больше раскрытий); {@code --source SHUFFLED} — случайные раскладки, среди которых
+ * бывают нерешаемые, зато они заметно сложнее перемешанных обратными ходами.
+ */
+public final class ScalingBenchmark {
+    private static final String HEADER = "colors,capacity,tubes,seed,status,moves,states,peak_heap_bytes,wall_ms";
+
+    private static final MethodHandle NEW_MACHINE;
+    private static final MethodHandle SYMMETRY_REDUCTION;
+    private static final MethodHandle BUDGET;
+    private static final MethodHandle VERBOSE;
+    private static final MethodHandle PATTERN_DATABASE;
+    private static final MethodHandle FIND_SOLUTION;
+    private static final MethodHandle STATES_EXPLORED;
+    private static final MethodHandle BUDGET_EXHAUSTED;
+
+    static {
+        try {
+            // MachineStates лежит в пакете по умолчанию — см. SolverBenchmark
+            Class<?> machine = Class.forName("MachineStates");
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            NEW_MACHINE = lookup.findConstructor(machine, MethodType.methodType(void.class, GameState.class));
+            SYMMETRY_REDUCTION = lookup.findVirtual(machine, "symmetryReduction", MethodType.methodType(machine, boolean.class));
+            BUDGET = lookup.findVirtual(machine, "budget", MethodType.methodType(machine, SearchBudget.class));
+            VERBOSE = lookup.findVirtual(machine, "verbose", MethodType.methodType(machine, boolean.class));
+            PATTERN_DATABASE = lookup.findVirtual(machine, "patternDatabase", MethodType.methodType(machine, Path.class));
+            FIND_SOLUTION = lookup.findVirtual(machine, "findSolution", MethodType.methodType(List.class));
+            STATES_EXPLORED = lookup.findVirtual(machine, "getStatesExplored", MethodType.methodType(long.class));
+            BUDGET_EXHAUSTED = lookup.findVirtual(machine, "isBudgetExhausted", MethodType.methodType(boolean.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private ScalingBenchmark() {
+    }
+
+    public static void main(String[] args) throws Throwable {
+        int[] colors = {3, 4, 5, 6};
+        int[] capacities = {4};
+        int[] emptyTubes = {2};
+        int count = 8;
+        long seed = 1000;
+        boolean symmetry = true;
+        long maxStates = 2_000_000;
+        long timeoutMillis = 0;
+        String output = null;
+        PuzzleCorpus.Source source = PuzzleCorpus.Source.SCRAMBLED;
+        Path patternDatabases = null;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--colors" -> colors = parseList(args[++i]);
+                case "--capacity" -> capacities = parseList(args[++i]);
+                case "--empty" -> emptyTubes = parseList(args[++i]);
+                case "--count" -> count = Integer.parseInt(args[++i]);
+                case "--seed" -> seed = Long.parseLong(args[++i]);
+                case "--symmetry" -> symmetry = Boolean.parseBoolean(args[++i]);
+                case "--max-states" -> maxStates = Long.parseLong(args[++i]);
+                case "--timeout-ms" -> timeoutMillis = Long.parseLong(args[++i]);
+                case "--out" -> output = args[++i];
+                case "--source" -> source = PuzzleCorpus.Source.valueOf(args[++i]);
+                case "--pdb" -> patternDatabases = Paths.get(args[++i]);
+                default -> {
+                    System.err.println("Использование: [--colors 3,4,5] [--capacity 4] [--empty 2] [--count N] [--seed N]"
+                            + " [--symmetry true|false] [--max-states N] [--timeout-ms N] [--source SCRAMBLED|SHUFFLED]"
+                            + " [--pdb каталог] [--out файл.csv]");
+                    return;
+                }
+            }
+        }
+
+        SearchBudget budget = new SearchBudget(maxStates, timeoutMillis);
+        Writer writer = output == null
+                ? new OutputStreamWriter(System.out, StandardCharsets.UTF_8)
+                : Files.newBufferedWriter(Paths.get(output), StandardCharsets.UTF_8);
+        try (PrintWriter csv = new PrintWriter(writer)) {
+            csv.println(HEADER);
+            for (int capacity : capacities) {
+                for (int empty : emptyTubes) {
+                    for (int colorCount : colors) {
+                        List<GameState> puzzles = PuzzleCorpus.corpus(source, colorCount, capacity, empty, count, seed);
+                        for (int i = 0; i < puzzles.size(); i++) {
+                            csv.println(measure(puzzles.get(i), colorCount, capacity, seed + i, symmetry,
+                                    budget, patternDatabases));
+                            csv.flush();
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /** Решает одну головоломку и возвращает строку CSV */
+    private static String measure(GameState puzzle, int colors, int capacity, long seed,
+                                  boolean symmetry, SearchBudget budget, Path patternDatabases) throws Throwable {
+        List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.isValid()) heapPools.add(pool);
+        }
+        // мусор предыдущей головоломки не должен попасть в пик этой
+        System.gc();
+        for (MemoryPoolMXBean pool : heapPools) pool.resetPeakUsage();
+
+        long started = System.nanoTime();
+        Object machine = NEW_MACHINE.invoke(puzzle);
+        machine = SYMMETRY_REDUCTION.invoke(machine, symmetry);
+        machine = BUDGET.invoke(machine, budget);
+        machine = VERBOSE.invoke(machine, false);
+        if (patternDatabases != null) {
+            // базы кэшируются в памяти, так что время их построения попадает только в первую строку размера
+            machine = PATTERN_DATABASE.invoke(machine, patternDatabases);
+        }
+        List<?> solution = (List<?>) FIND_SOLUTION.invoke(machine);
+        long wallMillis = (System.nanoTime() - started) / 1_000_000;
+
+        // сумма пиков по пулам — оценка сверху: пулы достигают пика в разное время
+        long peakHeap = 0;
+        for (MemoryPoolMXBean pool : heapPools) peakHeap += pool.getPeakUsage().getUsed();
+
+        String status = solution != null ? "solved"
+                : (boolean) BUDGET_EXHAUSTED.invoke(machine) ? "budget_exhausted" : "unsolvable";
+        int moves = solution != null ? solution.size() - 1 : -1;
+        return String.join(",", String.valueOf(colors), String.valueOf(capacity),
+                String.valueOf(puzzle.getTubeCount()), String.valueOf(seed), status, String.valueOf(moves),
+                String.valueOf((long) STATES_EXPLORED.invoke(machine)), String.valueOf(peakHeap),
+                String.valueOf(wallMillis));
+    }
+
+    private static int[] parseList(String value) {
+        String[] parts = value.split(",");
+        int[] result = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            result[i] = Integer.parseInt(parts[i].trim());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,128 @@
+package benchmark;
+
+import models.GameState;
+import search.SearchBudget;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сквозной бенчмарк {@code MachineStates.findSolution()} на фиксированном наборе головоломок.
+ * Кроме ops/s выводит счётчик states — раскрытые состояния в секунду. Каждый поиск ограничен
+ * {@link #BUDGET}; прогоны, упёршиеся в предел, считаются отдельно (exhausted).
+ * MachineStates лежит в пакете по умолчанию, который нельзя импортировать,
+ * поэтому вызывается через MethodHandle.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SolverBenchmark {
+    private static final int CORPUS_SIZE = 16;
+    // случайная раскладка (SHUFFLED) бывает нерешаемой или слишком тяжёлой — без предела
+    // одна итерация могла бы съесть всю кучу, а результат зависел бы от того, какие раскладки попались
+    private static final SearchBudget BUDGET = new SearchBudget(2_000_000, 0);
+
+    private static final MethodHandle NEW_MACHINE;
+    private static final MethodHandle SYMMETRY_REDUCTION;
+    private static final MethodHandle SET_BUDGET;
+    private static final MethodHandle FIND_SOLUTION;
+    private static final MethodHandle STATES_EXPLORED;
+    private static final MethodHandle BUDGET_EXHAUSTED;
+
+    static {
+        try {
+            Class<?> machine = Class.forName("MachineStates");
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            NEW_MACHINE = lookup.findConstructor(machine, MethodType.methodType(void.class, GameState.class));
+            SYMMETRY_REDUCTION = lookup.findVirtual(machine, "symmetryReduction", MethodType.methodType(machine, boolean.class));
+            SET_BUDGET = lookup.findVirtual(machine, "budget", MethodType.methodType(machine, SearchBudget.class));
+            FIND_SOLUTION = lookup.findVirtual(machine, "findSolution", MethodType.methodType(List.class));
+            STATES_EXPLORED = lookup.findVirtual(machine, "getStatesExplored", MethodType.methodType(long.class));
+            BUDGET_EXHAUSTED = lookup.findVirtual(machine, "isBudgetExhausted", MethodType.methodType(boolean.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    @Param({"4", "6", "8"})
+    public int colors;
+
+    @Param({"4"})
+    public int capacity;
+
+    @Param({"false", "true"})
+    public boolean symmetry;
+
+    @Param({"SHUFFLED", "SCRAMBLED"})
+    public PuzzleCorpus.Source source;
+
+    private List<GameState> puzzles;
+    private int cursor;
+    private PrintStream originalOut;
+
+    /**
+     * Счётчики, которые JMH выводит рядом с ops/s: states — раскрытые состояния в секунду,
+     * exhausted — прогоны, остановленные бюджетом (их ops/s не сравнимы с решёнными)
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class SearchCounters {
+        public long states;
+        public long exhausted;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            states = 0;
+            exhausted = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        puzzles = PuzzleCorpus.corpus(source, colors, capacity, 2, CORPUS_SIZE, 1000);
+        // решатель печатает ход поиска в консоль — в бенчмарке это только шум
+        originalOut = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.setOut(originalOut);
+    }
+
+    @Benchmark
+    public Object findSolution(SearchCounters counters) throws Throwable {
+        GameState puzzle = puzzles.get(cursor);
+        cursor = (cursor + 1) % puzzles.size();
+        Object machine = SYMMETRY_REDUCTION.invoke(NEW_MACHINE.invoke(puzzle), symmetry);
+        machine = SET_BUDGET.invoke(machine, BUDGET);
+        Object solution = FIND_SOLUTION.invoke(machine);
+        counters.states += (long) STATES_EXPLORED.invoke(machine);
+        if ((boolean) BUDGET_EXHAUSTED.invoke(machine)) {
+            counters.exhausted++;
+        }
+        return solution;
+    }
+}
@@ -0,0 +1,52 @@
+package benchmark;
+
+import models.Tube;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+
+/** Бенчмарк переливания в представлении {@link Tube} */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TubeBenchmark {
+    @Param({"4", "8"})
+    public int capacity;
+
+    private Tube source;
+    private Tube target;
+
+    @Setup
+    public void setUp() {
+        Deque<Integer> balls = new ArrayDeque<>();
+        // верхняя половина — один цвет, нижняя — другой
+        for (int k = 0; k < capacity; k++) {
+            balls.addLast(k < capacity / 2 ? 1 : 2);
+        }
+        source = new Tube(balls, capacity);
+        target = new Tube(new ArrayDeque<>(), capacity);
+    }
+
+    /** Переливание верхней группы в пустую пробирку и обратно — состояние восстанавливается */
+    @Benchmark
+    public int pourAllOfColorFromAndBack() {
+        target.pourAllOfColorFrom(source);
+        source.pourAllOfColorFrom(target);
+        return source.countTopColorGroup();
+    }
+}
@@ -0,0 +1,427 @@
+import models.GameState;
+import models.Tube;
+import search.PatternDatabaseHeuristic;
+import search.SearchBudget;
+import search.SolutionCache;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Пакетное решение головоломок из файла или каталога.
+ * Каждая головоломка решается отдельной задачей в ForkJoinPool с собственным
+ * бюджетом (состояния/время); результаты пишутся построчно в JSON по мере готовности,
+ * поэтому порядок строк вывода — порядок завершения, а не порядок ввода.
+ * <p>
+ * Формат ввода — одна головоломка на строку, пустые строки и строки с '#' пропускаются:
+ * <ul>
+ *   <li>как в консоли: {@code n v c11 c12 ... cnv} — пробирки сверху вниз, 0 — пусто;</li>
+ *   <li>JSON: {@code {"id": "level-1", "capacity": 4, "tubes": [[1,2,3,4], [0,0,0,0]]}}
+ *       или просто массив пробирок {@code [[1,2],[2,1],[0,0]]}.</li>
+ * </ul>
+ */
+public class BatchSolver {
+    // сколько головоломок на поток может ждать в очереди — ограничивает память при больших файлах
+    private static final int QUEUED_PER_THREAD = 4;
+
+    private final int parallelism;
+    private final SearchBudget budget;
+    private final PrintWriter out;
+    private Path patternDatabases;
+    private SolutionCache cache;
+
+    private final AtomicLong solved = new AtomicLong();
+    private final AtomicLong unsolvable = new AtomicLong();
+    private final AtomicLong exhausted = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+
+    public BatchSolver(int parallelism, SearchBudget budget, Writer out) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Количество потоков должно быть положительным: " + parallelism);
+        }
+        this.parallelism = parallelism;
+        this.budget = budget;
+        this.out = new PrintWriter(out);
+    }
+
+    /**
+     * Решать с допустимой эвристикой на базах образцов из каталога directory
+     * (там, где головоломка это позволяет); решения тогда кратчайшие. null — штрафная эвристика.
+     */
+    public BatchSolver patternDatabase(Path directory) {
+        this.patternDatabases = directory;
+        return this;
+    }
+
+    /** Общий для всех головоломок кэш решений; null — без кэша */
+    public BatchSolver solutionCache(SolutionCache cache) {
+        this.cache = cache;
+        return this;
+    }
+
+    /**
+     * Точка входа пакетного режима:
+     * {@code --batch <файл|каталог> [--threads N] [--max-states N] [--timeout-ms N] [--out файл] [--pdb каталог] [--cache файл]}
+     */
+    public static void runFromCommandLine(String[] args) throws IOException, InterruptedException {
+        Path input = null;
+        Path output = null;
+        Path patternDatabases = Paths.get(Main.PATTERN_DATABASE_DIR);
+        int threads = Runtime.getRuntime().availableProcessors();
+        long maxStates = 0;
+        long timeoutMillis = 0;
+        Path cacheFile = null;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--threads" -> threads = Integer.parseInt(args[++i]);
+                case "--max-states" -> maxStates = Long.parseLong(args[++i]);
+                case "--timeout-ms" -> timeoutMillis = Long.parseLong(args[++i]);
+                case "--out" -> output = Paths.get(args[++i]);
+                case "--pdb" -> patternDatabases = Paths.get(args[++i]);
+                case "--cache" -> cacheFile = Paths.get(args[++i]);
+                default -> input = Paths.get(args[i]);
+            }
+        }
+        if (input == null) {
+            System.err.println("Использование: --batch <файл|каталог> [--threads N] [--max-states N] [--timeout-ms N] [--out файл] [--pdb каталог] [--cache файл]");
+            return;
+        }
+
+        Writer writer = output == null
+                ? new OutputStreamWriter(System.out, StandardCharsets.UTF_8)
+                : Files.newBufferedWriter(output, StandardCharsets.UTF_8);
+        long started = System.nanoTime();
+        SolutionCache cache = cacheFile == null ? null : new SolutionCache(cacheFile);
+        BatchSolver solver = new BatchSolver(threads, new SearchBudget(maxStates, timeoutMillis), writer)
+                .patternDatabase(patternDatabases)
+                .solutionCache(cache);
+        solver.run(input);
+        if (output != null) writer.close();
+        if (cache != null) {
+            cache.close();
+            System.err.printf("Кэш решений: попаданий %d, промахов %d, записей %d%n",
+                    cache.getHits(), cache.getMisses(), cache.size());
+        }
+        System.err.printf("Решено: %d, без решения: %d, исчерпан бюджет: %d, ошибки: %d, время: %d мс%n",
+                solver.solved.get(), solver.unsolvable.get(), solver.exhausted.get(), solver.errors.get(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    /** Решает все головоломки из файла или из всех файлов каталога */
+    public void run(Path input) throws IOException, InterruptedException {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        Semaphore queued = new Semaphore(parallelism * QUEUED_PER_THREAD);
+        try {
+            for (Path file : inputFiles(input)) {
+                try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                    String line;
+                    int lineNumber = 0;
+                    while ((line = reader.readLine()) != null) {
+                        lineNumber++;
+                        String trimmed = line.trim();
+                        if (trimmed.isEmpty() || trimmed.startsWith("#")) continue;
+
+                        String defaultId = file.getFileName() + ":" + lineNumber;
+                        queued.acquire();
+                        pool.execute(() -> {
+                            try {
+                                solve(defaultId, trimmed);
+                            } finally {
+                                queued.release();
+                            }
+                        });
+                    }
+                }
+            }
+        } finally {
+            pool.shutdown();
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            out.flush();
+        }
+    }
+
+    public long getSolved() {
+        return solved.get();
+    }
+
+    public long getUnsolvable() {
+        return unsolvable.get();
+    }
+
+    public long getBudgetExhausted() {
+        return exhausted.get();
+    }
+
+    public long getErrors() {
+        return errors.get();
+    }
+
+    private List<Path> inputFiles(Path input) throws IOException {
+        if (!Files.isDirectory(input)) {
+            return List.of(input);
+        }
+        try (Stream<Path> files = Files.list(input)) {
+            return files.filter(Files::isRegularFile).sorted().toList();
+        }
+    }
+
+    private void solve(String defaultId, String line) {
+        String id = defaultId;
+        long started = System.nanoTime();
+        try {
+            Puzzle puzzle = parsePuzzle(line, defaultId);
+            id = puzzle.id();
+            MachineStates machine = new MachineStates(puzzle.state())
+                    .symmetryReduction(true)
+                    .budget(budget)
+                    .verbose(false)
+                    .solutionCache(cache);
+            boolean optimal = patternDatabases != null && PatternDatabaseHeuristic.isSupported(puzzle.state());
+            if (optimal) {
+                machine.patternDatabase(patternDatabases);
+            }
+            List<GameState> solution = machine.findSolution();
+            long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+
+            String status;
+            if (solution != null) {
+                status = "SOLVED";
+                solved.incrementAndGet();
+            } else if (machine.isBudgetExhausted()) {
+                status = "BUDGET_EXHAUSTED";
+                exhausted.incrementAndGet();
+            } else {
+                status = "UNSOLVABLE";
+                unsolvable.incrementAndGet();
+            }
+            StringBuilder sb = new StringBuilder();
+            sb.append("{\"id\":\"").append(escape(id)).append("\",\"status\":\"").append(status).append('"');
+            if (solution != null) {
+                sb.append(",\"moves\":").append(movesJson(solution)).append(",\"depth\":").append(solution.size() - 1)
+                        .append(",\"optimal\":").append(optimal);
+            }
+            if (machine.isCacheHit()) {
+                sb.append(",\"cached\":true");
+            }
+            sb.append(",\"states\":").append(machine.getStatesExplored()).append(",\"ms\":").append(millis).append('}');
+            emit(sb.toString());
+        } catch (RuntimeException e) {
+            errors.incrementAndGet();
+            emit("{\"id\":\"" + escape(id) + "\",\"status\":\"ERROR\",\"error\":\"" + escape(String.valueOf(e.getMessage())) + "\"}");
+        }
+    }
+
+    private void emit(String line) {
+        synchronized (out) {
+            out.println(line);
+            out.flush();
+        }
+    }
+
+    /** Ходы решения в номерах пробирок с единицы, как при печати в Main */
+    private static String movesJson(List<GameState> path) {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 1; i < path.size(); i++) {
+            if (i > 1) sb.append(',');
+            GameState step = path.get(i);
+            sb.append('[').append(step.getFromIndex() + 1).append(',').append(step.getToIndex() + 1).append(']');
+        }
+        return sb.append(']').toString();
+    }
+
+    /** Строка для вставки в JSON: кавычки, обратная косая черта и управляющие символы экранируются */
+    private static String escape(String value) {
+        StringBuilder sb = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    /** Значение строкового литерала JSON без кавычек, escape-последовательности раскрываются */
+    private static String unescape(String literal) {
+        StringBuilder sb = new StringBuilder(literal.length());
+        for (int i = 0; i < literal.length(); i++) {
+            char c = literal.charAt(i);
+            if (c != '\\' || i + 1 == literal.length()) {
+                sb.append(c);
+                continue;
+            }
+            char next = literal.charAt(++i);
+            switch (next) {
+                case 'n' -> sb.append('\n');
+                case 'r' -> sb.append('\r');
+                case 't' -> sb.append('\t');
+                case 'b' -> sb.append('\b');
+                case 'f' -> sb.append('\f');
+                case 'u' -> {
+                    if (i + 4 >= literal.length()) {
+                        throw new IllegalArgumentException("Неверная escape-последовательность в строке: " + literal);
+                    }
+                    sb.append((char) Integer.parseInt(literal.substring(i + 1, i + 5), 16));
+                    i += 4;
+                }
+                default -> sb.append(next);
+            }
+        }
+        return sb.toString();
+    }
+
+    /** Головоломка из строки ввода */
+    record Puzzle(String id, GameState state) {
+    }
+
+    static Puzzle parsePuzzle(String line, String defaultId) {
+        if (line.startsWith("{") || line.startsWith("[")) {
+            return parseJson(line, defaultId);
+        }
+        String[] tokens = line.split("\\s+");
+        int n = Integer.parseInt(tokens[0]);
+        int v = Integer.parseInt(tokens[1]);
+        if (tokens.length != 2 + n * v) {
+            throw new IllegalArgumentException("Ожидалось " + (n * v) + " цветов, получено " + (tokens.length - 2));
+        }
+        List<List<Integer>> rows = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            List<Integer> row = new ArrayList<>(v);
+            for (int j = 0; j < v; j++) {
+                row.add(Integer.parseInt(tokens[2 + i * v + j]));
+            }
+            rows.add(row);
+        }
+        return new Puzzle(defaultId, toState(rows, v));
+    }
+
+    private static Puzzle parseJson(String line, String defaultId) {
+        String id = defaultId;
+        int capacity = 0;
+        String tubesJson = line;
+        if (line.startsWith("{")) {
+            String idValue = jsonField(line, "id");
+            if (idValue != null) {
+                id = idValue.startsWith("\"") ? unescape(idValue.substring(1, idValue.length() - 1)) : idValue;
+            }
+            String capacityValue = jsonField(line, "capacity");
+            if (capacityValue != null) capacity = Integer.parseInt(capacityValue);
+            tubesJson = jsonField(line, "tubes");
+            if (tubesJson == null) {
+                throw new IllegalArgumentException("Нет поля tubes");
+            }
+        }
+
+        List<List<Integer>> rows = new ArrayList<>();
+        List<Integer> row = null;
+        int depth = 0;
+        int number = -1;
+        for (int i = 0; i < tubesJson.length(); i++) {
+            char c = tubesJson.charAt(i);
+            if (Character.isDigit(c)) {
+                number = (number < 0 ? 0 : number * 10) + (c - '0');
+                continue;
+            }
+            if (number >= 0) {
+                if (depth != 2) {
+                    throw new IllegalArgumentException("tubes должен быть массивом массивов цветов");
+                }
+                row.add(number);
+                number = -1;
+            }
+            if (c == '[') {
+                depth++;
+                if (depth > 2) {
+                    throw new IllegalArgumentException("tubes должен быть массивом массивов цветов");
+                }
+                if (depth == 2) row = new ArrayList<>();
+            } else if (c == ']') {
+                if (depth == 2) rows.add(row);
+                depth--;
+            } else if (c != ',' && !Character.isWhitespace(c)) {
+                throw new IllegalArgumentException("Неожиданный символ в tubes: " + c);
+            }
+        }
+        if (capacity == 0) {
+            for (List<Integer> r : rows) capacity = Math.max(capacity, r.size());
+        }
+        return new Puzzle(id, toState(rows, capacity));
+    }
+
+    /** Значение поля верхнего уровня JSON-объекта как текст (строка — вместе с кавычками) */
+    private static String jsonField(String json, String name) {
+        int key = json.indexOf("\"" + name + "\"");
+        if (key < 0) return null;
+        int start = json.indexOf(':', key) + 1;
+        while (Character.isWhitespace(json.charAt(start))) start++;
+        int end = start;
+        char first = json.charAt(start);
+        if (first == '"') {
+            // экранированная кавычка строку не заканчивает
+            end = start + 1;
+            while (end < json.length() && json.charAt(end) != '"') {
+                if (json.charAt(end) == '\\') end++;
+                end++;
+            }
+            if (end >= json.length()) {
+                throw new IllegalArgumentException("Незакрытая строка в поле " + name);
+            }
+            end++;
+        } else if (first == '[') {
+            int depth = 0;
+            do {
+                char c = json.charAt(end++);
+                if (c == '[') depth++;
+                if (c == ']') depth--;
+            } while (depth > 0);
+        } else {
+            while (end < json.length() && json.charAt(end) != ',' && json.charAt(end) != '}') end++;
+        }
+        return json.substring(start, end).trim();
+    }
+
+    /** Пробирки заданы сверху вниз, 0 — пустое место (как при вводе в консоли) */
+    private static GameState toState(List<List<Integer>> rows, int capacity) {
+        List<Tube> tubes = new ArrayList<>(rows.size());
+        for (List<Integer> row : rows) {
+            if (row.size() > capacity) {
+                throw new IllegalArgumentException("В пробирке больше капель, чем её объём: " + row);
+            }
+            Deque<Integer> stack = new ArrayDeque<>();
+            for (int j = row.size() - 1; j >= 0; j--) {
+                int color = row.get(j);
+                if (color != 0) stack.addFirst(color);
+            }
+            tubes.add(new Tube(stack, capacity));
+        }
+        return new GameState(tubes);
+    }
+}
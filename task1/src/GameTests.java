@@ -1,6 +1,24 @@
 import models.GameState;
+import models.MutableState;
+import models.PuzzleGenerator;
 import models.Tube;
+import search.BucketQueue;
+import search.DeadStatePruner;
+import search.FingerprintSet;
+import search.Heuristic;
+import search.ParallelAStar;
+import search.PathStore;
+import search.PatternDatabaseHeuristic;
+import search.SearchBudget;
+import search.SearchListener;
+import search.SearchMetrics;
+import search.SolutionCache;
+import search.StateKey;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
 
 /**
@@ -8,6 +26,19 @@ import java.util.*;
  * Запуск через Main: java -cp out Main, затем ввести 2.
  */
 public class GameTests {
+    /** Нулевая оценка допустима: A* превращается в поиск в ширину и находит кратчайшее решение */
+    private static final Heuristic BREADTH_FIRST = new Heuristic() {
+        @Override
+        public int estimate(GameState state) {
+            return 0;
+        }
+
+        @Override
+        public boolean isAdmissible() {
+            return true;
+        }
+    };
+
     private int passed;
     private int failed;
     private int testNumber;
@@ -29,6 +60,23 @@ public class GameTests {
         testGameStateHeuristic();
         testSolutionStepsValid();
         testComplexFourColorGame();
+        testPackedStateView();
+        testFingerprintSet();
+        testParallelSearch();
+        testIdaStarSearch();
+        testBucketQueueOrder();
+        testApplyUndoMove();
+        testSymmetryReduction();
+        testBatchSolver();
+        testPatternDatabaseHeuristic();
+        testBidirectionalSearch();
+        testExternalMemoryBfs();
+        testSearchMetrics();
+        testDeadStatePruning();
+        testPathStore();
+        testPuzzleGenerator();
+        testSolutionCache();
+        testAnytimeAStar();
 
         System.out.println("\n=== Результаты ===");
         System.out.println("Пройдено: " + passed + ", Провалено: " + failed);
@@ -108,6 +156,14 @@ public class GameTests {
         return true;
     }
 
+    /** Проверяет, что каждый шаг пути получается из предыдущего допустимым переливанием */
+    private boolean isValidPath(List<GameState> path) {
+        for (int i = 1; i < path.size(); i++) {
+            if (!path.get(i - 1).createChildren().contains(path.get(i))) return false;
+        }
+        return true;
+    }
+
     private void testSimpleTwoColorGame() {
         String name = "testSimpleTwoColorGame";
         List<List<Integer>> config = Arrays.asList(
@@ -257,4 +313,525 @@ public class GameTests {
         boolean ok = solution != null && !solution.isEmpty() && isGoalState(solution.get(solution.size() - 1));
         assertTrue(ok, name, ok ? "Сложная игра решена за " + (solution.size() - 1) + " шагов" : "Решение не найдено");
     }
+
+    private void testPackedStateView() {
+        String name = "testPackedStateView";
+        List<List<Integer>> config = Arrays.asList(
+                Arrays.asList(1, 2, 3),
+                Arrays.asList(0, 3, 1),
+                Arrays.asList(0, 0, 0)
+        );
+        printInput(name, 3, config);
+        GameState first = createGameState(3, config);
+        GameState second = createGameState(3, config);
+        List<Tube> view = first.getTubes();
+        boolean ok = first.equals(second) && first.hashCode() == second.hashCode()
+                && view.get(0).equals(createTube(Arrays.asList(1, 2, 3), 3))
+                && view.get(1).equals(createTube(Arrays.asList(0, 3, 1), 3))
+                && view.get(2).isEmpty()
+                && first.topColor(0) == 1 && first.topColor(1) == 3 && first.tubeSize(1) == 2;
+        assertTrue(ok, name, ok ? "Упакованное состояние совпадает с пробирками" : "Ошибка упаковки состояния");
+    }
+
+    private void testFingerprintSet() {
+        String name = "testFingerprintSet";
+        printTestHeader(name);
+        System.out.println("│  Вход: 10000 отпечатков, начальная ёмкость 16, 64 и 128 бит");
+        boolean ok = true;
+        for (boolean wide : new boolean[]{false, true}) {
+            FingerprintSet set = new FingerprintSet(16, wide);
+            for (long i = 0; i < 10_000; i++) {
+                ok &= set.add(i * 0x9E3779B97F4A7C15L, i);
+            }
+            for (long i = 0; i < 10_000; i++) {
+                ok &= !set.add(i * 0x9E3779B97F4A7C15L, i) && set.contains(i * 0x9E3779B97F4A7C15L, i);
+            }
+            ok &= set.size() == 10_000 && set.loadFactor() <= FingerprintSet.MAX_LOAD_FACTOR;
+            // в 128-битном режиме второе слово тоже участвует в сравнении
+            ok &= !wide || set.add(0x9E3779B97F4A7C15L, 42);
+        }
+        assertTrue(ok, name, ok ? "Закрытое множество корректно растёт и находит отпечатки" : "Ошибка закрытого множества");
+    }
+
+    private void testParallelSearch() {
+        String name = "testParallelSearch";
+        List<List<Integer>> config = Arrays.asList(
+                Arrays.asList(1, 2, 3, 4),
+                Arrays.asList(1, 2, 3, 4),
+                Arrays.asList(1, 2, 3, 4),
+                Arrays.asList(1, 2, 3, 4),
+                Arrays.asList(0, 0, 0, 0),
+                Arrays.asList(0, 0, 0, 0)
+        );
+        printInput(name, 4, config);
+        GameState initial = createGameState(4, config);
+        List<GameState> solution = new MachineStates(initial).parallel(4).findSolution();
+        // ошибка в одном потоке должна остановить поиск и дойти до вызывающего, а не подвесить остальные
+        int[] calls = {0};
+        Heuristic failing = state -> {
+            synchronized (calls) {
+                if (++calls[0] > 3) throw new IllegalStateException("сбой эвристики");
+            }
+            return 0;
+        };
+        boolean propagated;
+        try {
+            new ParallelAStar(4, 1 << 10, false, StateKey.POSITIONAL, failing).search(initial);
+            propagated = false;
+        } catch (IllegalStateException e) {
+            propagated = "сбой эвристики".equals(e.getMessage());
+        }
+        // прерванный поиск не должен выглядеть как доказательство, что решения нет
+        ParallelAStar interrupted = new ParallelAStar(4, 1 << 10, false, StateKey.POSITIONAL);
+        Thread.currentThread().interrupt();
+        boolean cutShort = interrupted.search(initial) == null && interrupted.isBudgetExhausted()
+                && Thread.interrupted();
+        boolean ok = solution != null && solution.get(0).equals(initial)
+                && isGoalState(solution.get(solution.size() - 1)) && isValidPath(solution) && propagated && cutShort;
+        assertTrue(ok, name, ok ? "HDA* на 4 потоках: решение за " + (solution.size() - 1) + " шагов, сбой потока проброшен, прерывание не принято за «решения нет»"
+                : "HDA* не нашёл корректное решение, не пробросил ошибку потока или прерывание");
+    }
+
+    private void testIdaStarSearch() {
+        String name = "testIdaStarSearch";
+        List<List<Integer>> config = Arrays.asList(
+                Arrays.asList(1, 2, 3),
+                Arrays.asList(1, 2, 3),
+                Arrays.asList(1, 2, 3),
+                Arrays.asList(0, 0, 0),
+                Arrays.asList(0, 0, 0)
+        );
+        printInput(name, 3, config);
+        GameState initial = createGameState(3, config);
+        List<GameState> solution = new MachineStates(initial).memoryBounded(1 << 12).findSolution();
+        boolean ok = solution != null && solution.get(0).equals(initial)
+                && isGoalState(solution.get(solution.size() - 1)) && isValidPath(solution);
+        assertTrue(ok, name, ok ? "IDA*: решение за " + (solution.size() - 1) + " шагов" : "IDA* не нашёл корректное решение");
+    }
+
+    private void testBucketQueueOrder() {
+        String name = "testBucketQueueOrder";
+        printTestHeader(name);
+        System.out.println("│  Вход: (5,a) (2,b) (7,c) (2,d) (100,e) (1,f)");
+        BucketQueue<String> queue = new BucketQueue<>(4);
+        queue.add(5, "a");
+        queue.add(2, "b");
+        queue.add(7, "c");
+        queue.add(2, "d");
+        queue.add(100, "e");
+        queue.add(1, "f");
+        StringBuilder order = new StringBuilder();
+        while (!queue.isEmpty()) {
+            order.append(queue.poll());
+        }
+        // при равных ключах первым извлекается последний добавленный (LIFO)
+        boolean ok = order.toString().equals("fdbace") && queue.poll() == null;
+        assertTrue(ok, name, ok ? "Порядок извлечения: " + order : "Неверный порядок: " + order);
+    }
+
+    private void testApplyUndoMove() {
+        String name = "testApplyUndoMove";
+        List<List<Integer>> config = Arrays.asList(
+                Arrays.asList(0, 2, 2, 1),
+                Arrays.asList(0, 0, 2, 3),
+                Arrays.asList(0, 0, 0, 0)
+        );
+        printInput(name, 4, config);
+        GameState initial = createGameState(4, config);
+        MutableState work = initial.toMutable();
+        long before = work.fingerprint();
+        // вторые отпечатки запрошены до хода — дальше они обновляются по ходам
+        long secondaryBefore = work.secondaryFingerprint();
+        long secondaryCanonicalBefore = work.secondaryCanonicalFingerprint();
+        int poured = work.applyMove(0, 1);
+        boolean ok = poured == 2 && work.tubeSize(0) == 1 && work.tubeSize(1) == 4 && work.topColor(1) == 2;
+        GameState child = work.freeze(initial, 0, 1);
+        ok &= work.secondaryFingerprint() == child.secondaryFingerprint()
+                && work.secondaryCanonicalFingerprint() == child.secondaryCanonicalFingerprint();
+        work.undoMove(0, 1, poured);
+        ok &= work.secondaryFingerprint() == secondaryBefore
+                && work.secondaryCanonicalFingerprint() == secondaryCanonicalBefore;
+        ok &= work.fingerprint() == before && before == initial.fingerprint()
+                && child.fingerprint() != before && initial.createChildren().contains(child)
+                && work.applyMove(2, 0) == 0;
+        // инкрементальный хэш Зобриста совпадает с пересчитанным с нуля
+        GameState rebuilt = new GameState(child.getTubes());
+        ok &= rebuilt.fingerprint() == child.fingerprint() && rebuilt.equals(child)
+                && rebuilt.secondaryFingerprint() == child.secondaryFingerprint();
+        assertTrue(ok, name, ok ? "Ход применяется и откатывается на месте" : "Ошибка applyMove/undoMove");
+    }
+
+    private void testSymmetryReduction() {
+        String name = "testSymmetryReduction";
+        List<List<Integer>> config = Arrays.asList(
+                Arrays.asList(1, 2, 3),
+                Arrays.asList(3, 1, 2),
+                Arrays.asList(2, 3, 1),
+                Arrays.asList(0, 0, 0),
+                Arrays.asList(0, 0, 0),
+                Arrays.asList(0, 0, 0)
+        );
+        List<List<Integer>> permuted = Arrays.asList(
+                Arrays.asList(0, 0, 0),
+                Arrays.asList(2, 3, 1),
+                Arrays.asList(0, 0, 0),
+                Arrays.asList(1, 2, 3),
+                Arrays.asList(0, 0, 0),
+                Arrays.asList(3, 1, 2)
+        );
+        printInput(name, 3, config);
+        GameState initial = createGameState(3, config);
+        GameState other = createGameState(3, permuted);
+        boolean ok = initial.isPermutationOf(other) && !initial.equals(other)
+                && initial.canonicalFingerprint() == other.canonicalFingerprint()
+                && Arrays.equals(initial.canonicalKey(), other.canonicalKey());
+
+        MachineStates positional = new MachineStates(initial);
+        MachineStates canonical = new MachineStates(initial).symmetryReduction(true);
+        positional.findSolution();
+        List<GameState> solution = canonical.findSolution();
+        ok &= solution != null && isGoalState(solution.get(solution.size() - 1)) && isValidPath(solution)
+                && canonical.getClosedSet().size() < positional.getClosedSet().size();
+        assertTrue(ok, name, ok
+                ? "Закрыто состояний: " + positional.getClosedSet().size() + " -> " + canonical.getClosedSet().size()
+                : "Ошибка канонической формы");
+    }
+
+    private void testBatchSolver() {
+        String name = "testBatchSolver";
+        printTestHeader(name);
+        List<String> lines = Arrays.asList(
+                "# пакет из четырёх головоломок",
+                "3 2 1 2 2 1 0 0",
+                "{\"id\": \"json\", \"tubes\": [[1,2,3],[3,2,1],[2,1,3],[0,0,0],[0,0,0]]}",
+                "2 2 1 2 2 1",
+                "3 2 1 2"
+        );
+        lines.forEach(line -> System.out.println("│  " + line));
+        boolean ok;
+        String output;
+        try {
+            Path input = Files.createTempFile("batch", ".txt");
+            Files.write(input, lines);
+            StringWriter out = new StringWriter();
+            BatchSolver solver = new BatchSolver(2, SearchBudget.UNLIMITED, out);
+            solver.run(input);
+            Files.delete(input);
+            output = out.toString();
+            ok = solver.getSolved() == 2 && solver.getUnsolvable() == 1 && solver.getErrors() == 1
+                    && output.contains("\"id\":\"json\",\"status\":\"SOLVED\"")
+                    && output.lines().count() == 4;
+        } catch (IOException | InterruptedException e) {
+            ok = false;
+            output = e.toString();
+        }
+        assertTrue(ok, name, ok ? "Решено 2, без решения 1, ошибок 1" : "Неверный результат пакета: " + output);
+    }
+
+    private void testPatternDatabaseHeuristic() {
+        String name = "testPatternDatabaseHeuristic";
+        List<List<Integer>> config = Arrays.asList(
+                Arrays.asList(2, 3, 2),
+                Arrays.asList(1, 3, 1),
+                Arrays.asList(1, 2, 3),
+                Arrays.asList(0, 0, 0),
+                Arrays.asList(0, 0, 0)
+        );
+        printInput(name, 3, config);
+        GameState initial = createGameState(3, config);
+        boolean ok;
+        String message;
+        try {
+            Path directory = Files.createTempDirectory("pdb");
+            List<GameState> shortest = new MachineStates(initial).heuristic(BREADTH_FIRST).verbose(false).findSolution();
+            MachineStates machine = new MachineStates(initial).patternDatabase(directory).verbose(false);
+            List<GameState> solution = machine.findSolution();
+            int estimate = new PatternDatabaseHeuristic(initial, directory).estimate(initial);
+            GameState stuck = createGameState(2, Arrays.asList(Arrays.asList(1, 2), Arrays.asList(2, 1)));
+            ok = solution != null && isValidPath(solution) && isGoalState(solution.get(solution.size() - 1))
+                    && solution.size() == shortest.size() && estimate <= shortest.size() - 1
+                    && new MachineStates(stuck).patternDatabase(directory).verbose(false).findSolution() == null;
+            message = "Оценка " + estimate + ", кратчайшее решение " + (shortest.size() - 1)
+                    + " ходов, A* с базой: " + (solution == null ? "нет" : solution.size() - 1);
+            try (var files = Files.list(directory)) {
+                for (Path file : files.toList()) Files.delete(file);
+            }
+            Files.delete(directory);
+        } catch (IOException e) {
+            ok = false;
+            message = e.toString();
+        }
+        assertTrue(ok, name, message);
+    }
+
+    private void testBidirectionalSearch() {
+        String name = "testBidirectionalSearch";
+        List<List<Integer>> config = Arrays.asList(
+                Arrays.asList(1, 2, 3, 1),
+                Arrays.asList(2, 3, 1, 2),
+                Arrays.asList(3, 1, 2, 3),
+                Arrays.asList(0, 0, 0, 0),
+                Arrays.asList(0, 0, 0, 0)
+        );
+        printInput(name, 4, config);
+        GameState initial = createGameState(4, config);
+        List<GameState> shortest = new MachineStates(initial).heuristic(BREADTH_FIRST).verbose(false).findSolution();
+        List<GameState> solution = new MachineStates(initial)
+                .algorithm(MachineStates.Algorithm.BIDIRECTIONAL).verbose(false).findSolution();
+        GameState stuck = createGameState(2, Arrays.asList(Arrays.asList(1, 2), Arrays.asList(2, 1)));
+        boolean ok = solution != null && shortest != null && solution.size() == shortest.size() && solution.get(0).equals(initial)
+                && isGoalState(solution.get(solution.size() - 1)) && isValidPath(solution)
+                && new MachineStates(stuck).algorithm(MachineStates.Algorithm.BIDIRECTIONAL).verbose(false).findSolution() == null;
+        assertTrue(ok, name, ok
+                ? "Встреча в середине: решение за " + (solution.size() - 1) + " шагов"
+                : "Двунаправленный поиск не нашёл корректное решение");
+    }
+
+    private void testExternalMemoryBfs() {
+        String name = "testExternalMemoryBfs";
+        List<List<Integer>> config = Arrays.asList(
+                Arrays.asList(1, 2, 3, 1),
+                Arrays.asList(2, 3, 1, 2),
+                Arrays.asList(3, 1, 2, 3),
+                Arrays.asList(0, 0, 0, 0),
+                Arrays.asList(0, 0, 0, 0)
+        );
+        printInput(name, 4, config);
+        GameState initial = createGameState(4, config);
+        boolean ok;
+        String message;
+        try {
+            Path directory = Files.createTempDirectory("bfs");
+            List<GameState> shortest = new MachineStates(initial).heuristic(BREADTH_FIRST).verbose(false).findSolution();
+            // маленький буфер — слои гарантированно разбиваются на много серий
+            int length = new MachineStates(initial).externalMemory(directory, 8).verbose(false).shortestSolutionLength();
+            GameState stuck = createGameState(2, Arrays.asList(Arrays.asList(1, 2), Arrays.asList(2, 1), Arrays.asList(0, 2)));
+            int stuckLength = new MachineStates(stuck).externalMemory(directory, 8).verbose(false).shortestSolutionLength();
+            boolean cleaned;
+            try (var files = Files.list(directory)) {
+                cleaned = files.findAny().isEmpty();
+            }
+            Files.delete(directory);
+            ok = shortest != null && length == shortest.size() - 1 && stuckLength == -1 && cleaned;
+            message = "Кратчайшее решение " + length + " ходов (в памяти: " + (shortest == null ? "нет" : shortest.size() - 1)
+                    + "), нерешаемая: " + stuckLength + ", временные файлы удалены: " + cleaned;
+        } catch (IOException e) {
+            ok = false;
+            message = e.toString();
+        }
+        assertTrue(ok, name, message);
+    }
+
+    private void testSearchMetrics() {
+        String name = "testSearchMetrics";
+        List<List<Integer>> config = Arrays.asList(
+                Arrays.asList(1, 2, 3, 1),
+                Arrays.asList(2, 3, 1, 2),
+                Arrays.asList(3, 1, 2, 3),
+                Arrays.asList(0, 0, 0, 0),
+                Arrays.asList(0, 0, 0, 0)
+        );
+        printInput(name, 4, config);
+        GameState initial = createGameState(4, config);
+        List<SearchMetrics> finished = new ArrayList<>();
+        SearchListener listener = new SearchListener() {
+            @Override
+            public void onSample(SearchMetrics metrics) {
+            }
+
+            @Override
+            public void onFinish(SearchMetrics metrics) {
+                finished.add(metrics);
+            }
+        };
+        MachineStates observed = new MachineStates(initial).listener(listener, 1).verbose(false);
+        List<GameState> solution = observed.findSolution();
+        MachineStates silent = new MachineStates(initial).verbose(false);
+        silent.findSolution();
+        SearchMetrics metrics = finished.isEmpty() ? null : finished.get(0);
+        boolean ok = solution != null && finished.size() == 1 && metrics.isFinished()
+                && metrics.getExpanded() == observed.getStatesExplored()
+                && metrics.getGenerated() > 0 && metrics.getClosedSize() > 0
+                && metrics.getMaxDepth() == solution.size() - 1
+                && silent.getMetrics() == null && silent.getStatesExplored() == observed.getStatesExplored();
+        assertTrue(ok, name, ok
+                ? "Итоговые счётчики: " + metrics
+                : "Счётчики поиска не совпадают с результатом");
+    }
+
+    private void testDeadStatePruning() {
+        String name = "testDeadStatePruning";
+        List<List<Integer>> config = Arrays.asList(
+                Arrays.asList(1, 2, 3, 1),
+                Arrays.asList(2, 3, 1, 2),
+                Arrays.asList(3, 1, 2, 3),
+                Arrays.asList(0, 0, 0, 0),
+                Arrays.asList(0, 0, 0, 0)
+        );
+        printInput(name, 4, config);
+        GameState initial = createGameState(4, config);
+        DeadStatePruner pruner = new DeadStatePruner();
+        // единственный ход — из первой пробирки во вторую — сразу решает головоломку
+        GameState forced = createGameState(2, Arrays.asList(Arrays.asList(1, 2), Arrays.asList(1, 0)));
+        GameState collapsed = pruner.prune(forced);
+        GameState stuck = createGameState(2, Arrays.asList(Arrays.asList(1, 2), Arrays.asList(2, 1)));
+        GameState tooMany = createGameState(2, Arrays.asList(Arrays.asList(1, 1), Arrays.asList(1, 0)));
+
+        List<GameState> plain = new MachineStates(initial).heuristic(BREADTH_FIRST).deadStatePruning(false)
+                .verbose(false).findSolution();
+        MachineStates pruned = new MachineStates(initial).heuristic(BREADTH_FIRST).verbose(false);
+        List<GameState> solution = pruned.findSolution();
+        MachineStates rejected = new MachineStates(tooMany).verbose(false);
+
+        boolean ok = collapsed != null && collapsed.isSolved() && collapsed.getDepth() == 1
+                && pruner.prune(stuck) == null && pruner.getDeadEnds() == 1 && pruner.getForcedMoves() == 1
+                && rejected.findSolution() == null && rejected.getPruner().getCountViolations() == 1
+                && rejected.getStatesExplored() == 0
+                && plain != null && solution != null && solution.size() == plain.size() && isValidPath(solution);
+        assertTrue(ok, name, ok
+                ? "Кратчайшее решение сохранено (" + (solution.size() - 1) + " шагов), отсечено: " + pruned.getPruner()
+                : "Отсечение тупиков работает неверно");
+    }
+
+    private void testPathStore() {
+        String name = "testPathStore";
+        List<List<Integer>> config = Arrays.asList(
+                Arrays.asList(1, 2, 3, 1),
+                Arrays.asList(2, 3, 1, 2),
+                Arrays.asList(3, 1, 2, 3),
+                Arrays.asList(0, 0, 0, 0),
+                Arrays.asList(0, 0, 0, 0)
+        );
+        printInput(name, 4, config);
+        GameState initial = createGameState(4, config);
+        PathStore paths = new PathStore(4);
+        GameState root = paths.addRoot(initial);
+        GameState child = root.createChildren().get(0);
+        GameState grandchild = child.createChildren().get(0);
+        // внук записывается цепочкой из двух ходов, как свёрнутые вынужденные ходы
+        GameState stored = paths.add(root, grandchild);
+        List<GameState> replayed = paths.replay(initial, stored.getPathIndex());
+        List<GameState> solution = new MachineStates(initial).heuristic(BREADTH_FIRST).verbose(false).findSolution();
+
+        boolean ok = stored.getParent() == null && stored.getDepth() == 2 && paths.size() == 3
+                && replayed.size() == 3 && replayed.get(1).equals(child) && replayed.get(2).equals(grandchild)
+                && stored.createChildren().size() == grandchild.createChildren().size()
+                && solution != null && solution.get(0) == initial && isValidPath(solution)
+                && isGoalState(solution.get(solution.size() - 1));
+        assertTrue(ok, name, ok
+                ? "Путь восстановлен по ходам: " + (solution.size() - 1) + " шагов"
+                : "Путь из хранилища не совпадает с исходным");
+    }
+
+    private void testPuzzleGenerator() {
+        String name = "testPuzzleGenerator";
+        printTestHeader(name);
+        System.out.println("│  Вход: 4 цвета по 4 капли, 6 пробирок, seed 1..5");
+        PuzzleGenerator generator = new PuzzleGenerator(4, 4, 6);
+        boolean ok = generator.generate(64, 7).equals(generator.generate(64, 7));
+        int maxMoves = 0;
+        for (long seed = 1; seed <= 5 && ok; seed++) {
+            GameState puzzle = generator.generate(64, seed);
+            List<GameState> solution = new MachineStates(puzzle).verbose(false).findSolution();
+            ok = puzzle.getParent() == null && !puzzle.isSolved()
+                    && solution != null && isValidPath(solution) && isGoalState(solution.get(solution.size() - 1));
+            if (solution != null) maxMoves = Math.max(maxMoves, solution.size() - 1);
+        }
+        assertTrue(ok, name, ok
+                ? "Все сгенерированные головоломки решены, самая длинная — " + maxMoves + " ходов"
+                : "Сгенерирована нерешаемая или неповторяемая головоломка");
+    }
+
+    private void testSolutionCache() {
+        String name = "testSolutionCache";
+        List<List<Integer>> config = Arrays.asList(
+                Arrays.asList(1, 2, 3, 1),
+                Arrays.asList(2, 3, 1, 2),
+                Arrays.asList(3, 1, 2, 3),
+                Arrays.asList(0, 0, 0, 0),
+                Arrays.asList(0, 0, 0, 0)
+        );
+        // та же головоломка: пробирки переставлены, цвета 1 и 2 поменяны местами
+        List<List<Integer>> relabelled = Arrays.asList(
+                Arrays.asList(0, 0, 0, 0),
+                Arrays.asList(3, 2, 1, 3),
+                Arrays.asList(0, 0, 0, 0),
+                Arrays.asList(2, 1, 3, 2),
+                Arrays.asList(1, 3, 2, 1)
+        );
+        printInput(name, 4, config);
+        GameState initial = createGameState(4, config);
+        GameState variant = createGameState(4, relabelled);
+        GameState stuck = createGameState(2, Arrays.asList(Arrays.asList(1, 2), Arrays.asList(2, 1)));
+        boolean ok;
+        String message;
+        try {
+            Path directory = Files.createTempDirectory("cache");
+            Path file = directory.resolve("solutions.bin");
+            List<GameState> solved;
+            List<GameState> cached;
+            MachineStates repeat;
+            try (SolutionCache cache = new SolutionCache(file)) {
+                solved = new MachineStates(initial).verbose(false).solutionCache(cache).findSolution();
+                new MachineStates(stuck).verbose(false).solutionCache(cache).findSolution();
+            }
+            // новый экземпляр читает записи из файла
+            try (SolutionCache cache = new SolutionCache(file)) {
+                repeat = new MachineStates(variant).verbose(false).solutionCache(cache);
+                cached = repeat.findSolution();
+                MachineStates stuckRepeat = new MachineStates(stuck).verbose(false).solutionCache(cache);
+                ok = stuckRepeat.findSolution() == null && stuckRepeat.isCacheHit() && cache.size() == 2;
+            }
+            Files.delete(file);
+            Files.delete(directory);
+            ok = ok && solved != null && cached != null && repeat.isCacheHit() && repeat.getStatesExplored() == 0
+                    && cached.size() == solved.size() && cached.get(0) == variant && isValidPath(cached)
+                    && isGoalState(cached.get(cached.size() - 1));
+            message = ok
+                    ? "Перестановка с другими цветами решена из кэша за " + (cached.size() - 1) + " шагов"
+                    : "Кэш не вернул решение для перенумерованной головоломки";
+        } catch (IOException e) {
+            ok = false;
+            message = e.toString();
+        }
+        assertTrue(ok, name, message);
+    }
+
+    private void testAnytimeAStar() {
+        String name = "testAnytimeAStar";
+        printTestHeader(name);
+        System.out.println("│  Вход: сгенерированная головоломка, 4 цвета по 4 капли, 6 пробирок, seed 8; эвристика — базы образцов");
+        // с h = 0 первое же решение кратчайшее; с базами образцов взвешенный A* сначала находит более длинное
+        GameState initial = new PuzzleGenerator(4, 4, 6).generate(64, 8);
+        List<GameState> shortest = new MachineStates(initial).heuristic(BREADTH_FIRST).verbose(false).findSolution();
+        List<Integer> lengths = new ArrayList<>();
+        boolean[] valid = {true};
+        boolean ok;
+        try {
+            Path directory = Files.createTempDirectory("pdb");
+            List<GameState> solution = new MachineStates(initial).patternDatabase(directory).verbose(false)
+                    .anytime(path -> {
+                        lengths.add(path.size() - 1);
+                        valid[0] &= path.get(0).equals(initial) && isValidPath(path) && isGoalState(path.get(path.size() - 1));
+                    })
+                    .findSolution();
+            ok = solution != null && shortest != null && lengths.size() >= 2 && valid[0]
+                    && solution.size() == shortest.size() && lengths.get(lengths.size() - 1) == shortest.size() - 1;
+            for (int i = 1; i < lengths.size() && ok; i++) {
+                ok = lengths.get(i) < lengths.get(i - 1);
+            }
+            try (var files = Files.list(directory)) {
+                for (Path file : files.toList()) Files.delete(file);
+            }
+            Files.delete(directory);
+        } catch (IOException e) {
+            ok = false;
+        }
+        GameState stuck = createGameState(2, Arrays.asList(Arrays.asList(1, 2), Arrays.asList(2, 1)));
+        ok = ok && new MachineStates(stuck).verbose(false).anytime(path -> {
+        }).findSolution() == null;
+        assertTrue(ok, name, ok
+                ? "Длины решений по мере улучшения: " + lengths + ", кратчайшее " + (shortest.size() - 1)
+                : "Anytime A* не улучшил решение до кратчайшего: " + lengths);
+    }
 }
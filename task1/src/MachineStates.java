@@ -1,86 +1,488 @@
 import models.GameState;
-import models.Tube;
+import models.MutableState;
+import search.AnytimeAStar;
+import search.BidirectionalSearch;
+import search.BucketQueue;
+import search.DeadStatePruner;
+import search.ExternalMemoryBfs;
+import search.FingerprintSet;
+import search.Heuristic;
+import search.IdaStar;
+import search.ParallelAStar;
+import search.PathStore;
+import search.MetricsSampler;
+import search.PatternDatabaseHeuristic;
+import search.SearchBudget;
+import search.SearchListener;
+import search.SearchMetrics;
+import search.SolutionCache;
+import search.StateKey;
 
+import java.nio.file.Path;
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 public class MachineStates {
+    private static final int DEFAULT_EXPECTED_STATES = 1 << 12;
+    private static final int DEFAULT_TRANSPOSITION_ENTRIES = 1 << 20;
+    private static final int DEFAULT_STATES_IN_MEMORY = 1 << 20;
+
+    /** Алгоритм поиска, используемый {@link #findSolution()} */
+    public enum Algorithm {
+        /** Последовательный A* */
+        A_STAR,
+        /** Параллельный A* с распределением состояний по хэшу */
+        PARALLEL_A_STAR,
+        /** IDA* с таблицей транспозиций — ограниченная память ценой повторных раскрытий */
+        IDA_STAR,
+        /** Двунаправленный поиск в ширину от начального состояния и от цели — кратчайшее решение без эвристики */
+        BIDIRECTIONAL,
+        /** Anytime A*: быстрое решение взвешенным A*, затем всё более короткие, пока позволяет бюджет */
+        ANYTIME
+    }
+
     private final GameState initialState;
-    private final Set<GameState> visited = new HashSet<>();
+    private FingerprintSet visited = new FingerprintSet(DEFAULT_EXPECTED_STATES, false);
+    private int expectedStates = DEFAULT_EXPECTED_STATES;
+    private boolean wideFingerprints;
+    private int threads = 1;
+    private int transpositionEntries = DEFAULT_TRANSPOSITION_ENTRIES;
+    private Algorithm algorithm = Algorithm.A_STAR;
+    private StateKey stateKey = StateKey.POSITIONAL;
+    private SearchBudget budget = SearchBudget.UNLIMITED;
+    private Heuristic heuristic = Heuristic.PENALTY;
+    private Path externalDirectory = Path.of(System.getProperty("java.io.tmpdir"));
+    private int statesInMemory = DEFAULT_STATES_IN_MEMORY;
+    private boolean pruning = true;
+    private DeadStatePruner pruner;
+    private PathStore paths;
+    private double[] anytimeWeights = AnytimeAStar.DEFAULT_WEIGHTS;
+    private Consumer<List<GameState>> onImprovement = path -> {
+    };
+    private boolean solutionOptimal;
+    private SolutionCache cache;
+    private boolean cacheHit;
+    private SearchListener listener = SearchListener.NONE;
+    private long sampleIntervalMillis;
+    private SearchMetrics metrics;
+    private boolean verbose = true;
+    private long statesExplored;
+    private long duplicates;
+    private boolean budgetExhausted;
 
     public MachineStates(GameState initialState) {
         this.initialState = initialState;
     }
 
+    /**
+     * Настраивает закрытое множество: ожидаемое число состояний (чтобы таблица
+     * не перестраивалась во время поиска) и ширину отпечатка — 128 бит делают
+     * коллизии пренебрежимо редкими даже на десятках миллионов состояний.
+     */
+    public MachineStates closedSet(int expectedStates, boolean wideFingerprints) {
+        this.expectedStates = expectedStates;
+        this.wideFingerprints = wideFingerprints;
+        this.visited = new FingerprintSet(expectedStates, wideFingerprints);
+        return this;
+    }
+
+    /**
+     * Включает параллельный поиск (HDA*) на заданном числе потоков.
+     * Состояния распределяются между потоками по хэшу; 1 — обычный A*.
+     */
+    public MachineStates parallel(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Количество потоков должно быть положительным: " + threads);
+        }
+        this.threads = threads;
+        this.algorithm = threads > 1 ? Algorithm.PARALLEL_A_STAR : Algorithm.A_STAR;
+        return this;
+    }
+
+    public MachineStates algorithm(Algorithm algorithm) {
+        this.algorithm = algorithm;
+        return this;
+    }
+
+    /**
+     * Включает IDA* с таблицей транспозиций на заданное число записей.
+     * Память поиска ограничена этой таблицей и текущим путём.
+     */
+    public MachineStates memoryBounded(int transpositionEntries) {
+        this.transpositionEntries = transpositionEntries;
+        this.algorithm = Algorithm.IDA_STAR;
+        return this;
+    }
+
+    /**
+     * Режим симметрии: состояния, отличающиеся только порядком пробирок, считаются
+     * одним состоянием. На головоломках с несколькими пустыми пробирками это
+     * сокращает пространство поиска на порядки. Ходы решения по-прежнему
+     * выводятся в настоящих номерах пробирок.
+     */
+    public MachineStates symmetryReduction(boolean enabled) {
+        this.stateKey = enabled ? StateKey.CANONICAL : StateKey.POSITIONAL;
+        return this;
+    }
+
+    /**
+     * Ограничивает поиск числом раскрытых состояний и временем.
+     * Если бюджет исчерпан, {@link #findSolution()} возвращает null,
+     * а {@link #isBudgetExhausted()} — true.
+     */
+    public MachineStates budget(SearchBudget budget) {
+        this.budget = budget;
+        return this;
+    }
+
+    /**
+     * Эвристика поиска. С допустимой эвристикой A* и IDA* возвращают кратчайшее
+     * решение; параллельный A* останавливается на первом найденном и кратчайшего не гарантирует.
+     */
+    public MachineStates heuristic(Heuristic heuristic) {
+        this.heuristic = heuristic;
+        return this;
+    }
+
+    /**
+     * Включает допустимую эвристику на базах образцов. Базы загружаются сразу
+     * из каталога directory, а если их там нет — строятся и сохраняются туда.
+     */
+    public MachineStates patternDatabase(Path directory) {
+        return heuristic(new PatternDatabaseHeuristic(initialState, directory));
+    }
+
+    /**
+     * Настраивает {@link #shortestSolutionLength()}: каталог временных файлов слоёв
+     * и число состояний, которое держится в памяти до сброса на диск.
+     */
+    public MachineStates externalMemory(Path directory, int statesInMemory) {
+        this.externalDirectory = directory;
+        this.statesInMemory = statesInMemory;
+        return this;
+    }
+
+    /**
+     * Отсечение тупиков и сворачивание вынужденных ходов перед очередью A*
+     * (см. {@link DeadStatePruner}); по составу капель проверяется начальное состояние
+     * для всех алгоритмов. Включено по умолчанию.
+     */
+    public MachineStates deadStatePruning(boolean enabled) {
+        this.pruning = enabled;
+        return this;
+    }
+
+    /**
+     * Включает anytime A*: итерации взвешенного A* с весами weights (по убыванию, последний ≥ 1).
+     * Каждое более короткое решение передаётся в onImprovement; по исчерпании бюджета
+     * {@link #findSolution()} возвращает лучшее найденное. Останавливать поиск удобно
+     * бюджетом по времени ({@link #budget(SearchBudget)}).
+     */
+    public MachineStates anytime(double[] weights, Consumer<List<GameState>> onImprovement) {
+        this.anytimeWeights = weights.clone();
+        this.onImprovement = onImprovement;
+        this.algorithm = Algorithm.ANYTIME;
+        return this;
+    }
+
+    /** Anytime A* с весами {@link AnytimeAStar#DEFAULT_WEIGHTS} */
+    public MachineStates anytime(Consumer<List<GameState>> onImprovement) {
+        return anytime(AnytimeAStar.DEFAULT_WEIGHTS, onImprovement);
+    }
+
+    /**
+     * Кэш решений: перед поиском решение ищется в нём (в том числе для головоломки
+     * с переставленными пробирками или перенумерованными цветами), а найденное
+     * решение или доказанное отсутствие решения сохраняется туда.
+     */
+    public MachineStates solutionCache(SolutionCache cache) {
+        this.cache = cache;
+        return this;
+    }
+
+    /**
+     * Подключает наблюдателя за ходом поиска: счётчики опрашиваются отдельным потоком
+     * раз в intervalMillis, поиск лишь изредка публикует их. С {@link SearchListener#NONE}
+     * (по умолчанию) поток не запускается и счётчики не публикуются.
+     * Подробные счётчики ведёт A*; остальные алгоритмы сообщают только итог.
+     */
+    public MachineStates listener(SearchListener listener, long intervalMillis) {
+        if (intervalMillis < 1) {
+            throw new IllegalArgumentException("Интервал опроса должен быть положительным: " + intervalMillis);
+        }
+        this.listener = listener;
+        this.sampleIntervalMillis = intervalMillis;
+        return this;
+    }
+
+    /** Печатать итоговую статистику в консоль */
+    public MachineStates verbose(boolean verbose) {
+        this.verbose = verbose;
+        return this;
+    }
+
+    /** true, если последний поиск остановлен по бюджету, а не исчерпал пространство */
+    public boolean isBudgetExhausted() {
+        return budgetExhausted;
+    }
+
+    /** Количество раскрытых состояний в последнем поиске */
+    public long getStatesExplored() {
+        return statesExplored;
+    }
+
+    /** true, если результат последнего {@link #findSolution()} взят из кэша решений */
+    public boolean isCacheHit() {
+        return cacheHit;
+    }
+
+    /** Счётчики последнего поиска; null, если наблюдатель не подключён */
+    public SearchMetrics getMetrics() {
+        return metrics;
+    }
+
+    /** Счётчики отсечения последнего поиска; null, если отсечение выключено */
+    public DeadStatePruner getPruner() {
+        return pruner;
+    }
+
+    /** Закрытое множество последнего поиска (заполнение, длины проб) */
+    public FingerprintSet getClosedSet() {
+        return visited;
+    }
+
     /** Главный метод поиска решения */
     public List<GameState> findSolution() {
-        GameState goal = aStar(initialState);
+        budgetExhausted = false;
+        cacheHit = false;
+        if (cache == null) {
+            return observe();
+        }
+        SolutionCache.Hit hit = cache.lookup(initialState, isOptimal());
+        if (hit != null) {
+            cacheHit = true;
+            statesExplored = 0;
+            log(hit.path() == null ? "\nРешения нет (кэш).\n" : "\nРешение найдено в кэше!\n");
+            return hit.path();
+        }
+        List<GameState> path = observe();
+        if (path != null || !budgetExhausted) {
+            cache.put(initialState, path, solutionOptimal);
+        }
+        return path;
+    }
+
+    /** Кратчайшее ли решение вернёт поиск с текущими настройками */
+    private boolean isOptimal() {
+        return switch (algorithm) {
+            case A_STAR, IDA_STAR, ANYTIME -> heuristic.isAdmissible();
+            case BIDIRECTIONAL -> true;
+            case PARALLEL_A_STAR -> false;
+        };
+    }
+
+    private List<GameState> observe() {
+        if (listener == SearchListener.NONE) {
+            metrics = null;
+            return solve();
+        }
+        metrics = new SearchMetrics();
+        MetricsSampler sampler = new MetricsSampler(metrics, listener, sampleIntervalMillis);
+        try (sampler) {
+            List<GameState> path = solve();
+            if (algorithm != Algorithm.A_STAR) {
+                metrics.publish(statesExplored, 0, 0, 0, 0, path == null ? 0 : path.size() - 1);
+            }
+            return path;
+        }
+    }
+
+    private List<GameState> solve() {
+        solutionOptimal = isOptimal();
+        pruner = pruning ? new DeadStatePruner() : null;
+        if (pruner != null && !pruner.isSolvableByCounts(initialState)) {
+            log("\nРешения нет: цвет не помещается в одну пробирку или цветов больше, чем пробирок.\n");
+            return null;
+        }
+        GameState goal;
+        switch (algorithm) {
+            case PARALLEL_A_STAR -> {
+                ParallelAStar search = new ParallelAStar(threads, expectedStates, wideFingerprints, stateKey, heuristic);
+                goal = search.search(initialState, budget);
+                statesExplored = search.getStatesExplored();
+                budgetExhausted = search.isBudgetExhausted();
+                log("Параллельный поиск (%d потоков): исследовано состояний: %d, закрыто: %d\n",
+                    threads, search.getStatesExplored(), search.getClosedSize());
+            }
+            case IDA_STAR -> {
+                IdaStar search = new IdaStar(transpositionEntries, stateKey, heuristic);
+                goal = search.search(initialState, budget);
+                statesExplored = search.getStatesExplored();
+                budgetExhausted = search.isBudgetExhausted();
+                log("IDA*: исследовано состояний: %d, итераций: %d, таблица транспозиций: %d записей (%d КБ)\n",
+                    search.getStatesExplored(), search.getIterations(),
+                    search.getTable().capacity(), search.getTable().memoryBytes() / 1024);
+            }
+            case BIDIRECTIONAL -> {
+                BidirectionalSearch search = new BidirectionalSearch(expectedStates, wideFingerprints);
+                goal = search.search(initialState, budget);
+                statesExplored = search.getStatesExplored();
+                budgetExhausted = search.isBudgetExhausted();
+                log("Двунаправленный поиск: исследовано состояний: %d, глубина вперёд: %d, назад: %d\n",
+                    search.getStatesExplored(), search.getForwardDepth(), search.getBackwardDepth());
+            }
+            case ANYTIME -> {
+                AnytimeAStar search = new AnytimeAStar(expectedStates, stateKey, heuristic, anytimeWeights);
+                goal = search.search(initialState, budget, improved -> onImprovement.accept(reconstructPath(improved)));
+                statesExplored = search.getStatesExplored();
+                budgetExhausted = search.isBudgetExhausted();
+                // решение по исчерпании бюджета — лучшее из найденных, но не доказанно кратчайшее
+                solutionOptimal = search.isOptimal() && !budgetExhausted;
+                log("Anytime A*: исследовано состояний: %d, итераций: %d, последний вес: %.2f%s\n",
+                    search.getStatesExplored(), search.getIterations(), search.getWeight(),
+                    solutionOptimal ? ", решение кратчайшее" : "");
+            }
+            default -> {
+                goal = aStar(initialState);
+                log("Закрытое множество: %s\n", visited);
+                log("Хранилище пути: %d состояний (%d КБ)\n", paths.size(), paths.memoryBytes() / 1024);
+                if (pruner != null) log("Отсечено: %s\n", pruner);
+            }
+        }
         if (goal == null) {
-            System.out.println("\nРешение не найдено.");
+            log(budgetExhausted ? "\nПоиск остановлен: исчерпан бюджет.\n" : "\nРешение не найдено.\n");
             return null;
         }
-        System.out.println("\nРешение найдено!");
+        log("\nРешение найдено!\n");
         return reconstructPath(goal);
     }
 
-    /** Алгоритм A* - поиск с эвристикой */
+    /**
+     * Полная проверка решаемости: поиск в ширину, слои которого хранятся на диске,
+     * поэтому пространство состояний может быть больше оперативной памяти.
+     * Возвращает длину кратчайшего решения или -1, если решения нет
+     * (или исчерпан бюджет — тогда {@link #isBudgetExhausted()} == true). Путь не восстанавливается.
+     */
+    public int shortestSolutionLength() {
+        ExternalMemoryBfs search = new ExternalMemoryBfs(externalDirectory, statesInMemory);
+        int length = search.search(initialState, budget);
+        statesExplored = search.getStatesExplored();
+        budgetExhausted = search.isBudgetExhausted();
+        log("Поиск в ширину на диске: исследовано состояний: %d, слоёв: %d, пик файлов: %d КБ\n",
+            search.getStatesExplored(), search.getLayers(), search.getPeakDiskBytes() / 1024);
+        return length;
+    }
+
+    private void log(String format, Object... args) {
+        if (verbose) {
+            System.out.printf(format, args);
+        }
+    }
+
+    /**
+     * Алгоритм A* - поиск с эвристикой.
+     * С допустимой эвристикой состояние закрывается при раскрытии, а не при порождении:
+     * первый извлечённый из очереди путь к состоянию кратчайший, дубликаты в очереди пропускаются.
+     */
     private GameState aStar(GameState start) {
-        PriorityQueue<GameState> openSet = new PriorityQueue<>(
-            Comparator.comparingInt(GameState::getTotalCost)
-        );
-        
-        openSet.add(start);
-        visited.add(start);
+        BucketQueue<GameState> openSet = new BucketQueue<>();
+        boolean optimal = heuristic.isAdmissible();
+        Predicate<MutableState> closed = optimal ? this::isNotVisited : this::markVisited;
+        Predicate<MutableState> filter = candidate -> {
+            if (closed.test(candidate)) return true;
+            duplicates++;
+            return false;
+        };
+        // состояния очереди не ссылаются на предков: путь хранится ходами в PathStore
+        paths = new PathStore(expectedStates);
+
+        int startEstimate = heuristic.estimate(start);
+        if (startEstimate == Heuristic.UNSOLVABLE) {
+            return null;
+        }
+        start = paths.addRoot(start);
+        openSet.add(startEstimate, start);
+        if (!optimal) markVisited(start);
         
-        int statesExplored = 0;
-        int lastReported = 0;
+        statesExplored = 0;
+        duplicates = 0;
+        long generated = 0;
+        int maxDepth = 0;
+        SearchBudget running = budget.start();
+        GameState goal = null;
 
         while (!openSet.isEmpty()) {
             GameState current = openSet.poll();
+            if (optimal && !markVisited(current)) {
+                duplicates++;
+                continue;
+            }
             statesExplored++;
-            
-            // Периодически выводим прогресс
-            if (statesExplored / 10 > lastReported) {
-                lastReported = statesExplored / 10;
-                System.out.printf("Исследовано состояний: %d, глубина: %d, эвристика: %d, очередь: %d\n", 
-                    statesExplored, current.getDepth(), current.calculateHeuristic(), openSet.size());
+            maxDepth = Math.max(maxDepth, current.getDepth());
+            // счётчики публикуются редко, чтобы поток опроса не мешал горячему циклу
+            if (metrics != null && (statesExplored & (SearchMetrics.PUBLISH_INTERVAL - 1)) == 0) {
+                metrics.publish(statesExplored, generated, duplicates, openSet.size(), visited.size(), maxDepth);
+            }
+            if (running.isExhausted(statesExplored)) {
+                budgetExhausted = true;
+                break;
             }
 
             if (isGoal(current)) {
-                return current;
+                goal = current;
+                break;
             }
 
-            for (GameState child : current.createChildren()) {
-                if (!visited.contains(child)) {
-                    visited.add(child);
-                    openSet.add(child);
+            // уже посещённые дети отсекаются до копирования состояния
+            for (GameState child : current.createChildren(filter)) {
+                if (pruner != null) {
+                    child = pruner.prune(child);
+                    if (child == null) continue;
+                    // конец свёрнутой цепочки ещё не проверен по закрытому множеству
+                    if (!optimal && child.getParent() != current && !markVisited(child)) {
+                        duplicates++;
+                        continue;
+                    }
                 }
+                int estimate = heuristic.estimate(child);
+                if (estimate == Heuristic.UNSOLVABLE) continue;
+                openSet.add(child.getDepth() + estimate, paths.add(current, child));
+                generated++;
             }
         }
-        return null;
+        if (metrics != null) {
+            metrics.publish(statesExplored, generated, duplicates, openSet.size(), visited.size(), maxDepth);
+        }
+        return goal;
     }
 
-    /** Проверка, достигнуто ли целевое состояние */
-    private boolean isGoal(GameState state) {
-        Set<Integer> seenColors = new HashSet<>();
+    /** Добавляет состояние в закрытое множество; false — если оно уже встречалось */
+    private boolean markVisited(GameState state) {
+        long secondary = visited.isWide() ? stateKey.secondary(state) : 0L;
+        return visited.add(stateKey.primary(state), secondary);
+    }
 
-        for (Tube tube : state.getTubes()) {
-            if (tube.isEmpty()) continue;
+    private boolean markVisited(MutableState candidate) {
+        long secondary = visited.isWide() ? stateKey.secondary(candidate) : 0L;
+        return visited.add(stateKey.primary(candidate), secondary);
+    }
 
-            Integer color = tube.peekTopColor();
-            // все элементы в пробирке должны быть одного цвета
-            for (Integer c : tube.getElements()) {
-                if (!Objects.equals(c, color)) return false;
-            }
+    private boolean isNotVisited(MutableState candidate) {
+        long secondary = visited.isWide() ? stateKey.secondary(candidate) : 0L;
+        return !visited.contains(stateKey.primary(candidate), secondary);
+    }
 
-            // один и тот же цвет не должен появляться в нескольких пробирках
-            if (seenColors.contains(color)) return false;
-            seenColors.add(color);
-        }
-        return true;
+    /** Проверка, достигнуто ли целевое состояние */
+    private boolean isGoal(GameState state) {
+        return state.isSolved();
     }
 
     /** Восстанавливает путь от начального состояния к найденному решению */
     private List<GameState> reconstructPath(GameState goal) {
+        if (goal.getPathIndex() >= 0) {
+            return paths.replay(initialState, goal.getPathIndex());
+        }
         List<GameState> path = new ArrayList<>();
         for (GameState s = goal; s != null; s = s.getParent()) {
             path.add(s);
@@ -1,9 +1,21 @@
 import models.*;
+import search.PatternDatabaseHeuristic;
+import search.SearchListener;
+
+import java.nio.file.Paths;
 import java.util.*;
 
 public class Main {
+    /** Каталог файлов баз образцов для допустимой эвристики */
+    static final String PATTERN_DATABASE_DIR = "pdb";
+    private static final long PROGRESS_INTERVAL_MILLIS = 1000;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && "--batch".equals(args[0])) {
+            BatchSolver.runFromCommandLine(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
 
-    public static void main(String[] args) {
         Scanner sc = new Scanner(System.in);
 
         System.out.println("=== Вода и колбочки ===");
@@ -44,9 +56,32 @@ public class Main {
             tubes.add(new Tube(stack, v));
         }
 
+        System.out.println("Алгоритм поиска: 1 - A*, 2 - параллельный A* (HDA*), 3 - IDA* (ограниченная память), 4 - двунаправленный поиск, 5 - только проверка решаемости (слои на диске)");
+        int algorithm = sc.nextInt();
+
         GameState initialState = new GameState(tubes);
-        MachineStates machine = new MachineStates(initialState);
+        // порядок пробирок не важен для решения — перестановки не исследуем повторно
+        MachineStates machine = new MachineStates(initialState).symmetryReduction(true);
+        if (algorithm == 2) {
+            machine.parallel(Runtime.getRuntime().availableProcessors());
+        } else if (algorithm == 3) {
+            machine.algorithm(MachineStates.Algorithm.IDA_STAR);
+        } else if (algorithm == 4) {
+            machine.algorithm(MachineStates.Algorithm.BIDIRECTIONAL);
+        }
+        if (algorithm == 5) {
+            int length = machine.shortestSolutionLength();
+            System.out.println(length < 0 ? "Решения нет." : "Решаемо, кратчайшее решение: " + length + " ходов.");
+            return;
+        }
+
+        if (PatternDatabaseHeuristic.isSupported(initialState)) {
+            // допустимая эвристика — A* и IDA* находят кратчайшее решение
+            machine.patternDatabase(Paths.get(PATTERN_DATABASE_DIR));
+        }
 
+        // ход поиска печатается отдельным потоком, а не из цикла поиска
+        machine.listener(SearchListener.console(System.out), PROGRESS_INTERVAL_MILLIS);
         List<GameState> solution = machine.findSolution();
 
         if (solution == null) {
@@ -1,47 +1,154 @@
 package models;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
 import java.util.List;
+import java.util.function.Predicate;
 
+/**
+ * Состояние игры в упакованном виде.
+ * Все пробирки хранятся в одном массиве byte[]: на каждую пробирку отводится
+ * (capacity + 1) байт — сначала количество капель, затем цвета снизу вверх.
+ * Хэш Зобриста вычисляется полностью только для начального состояния,
+ * у детей он обновляется по перелитым каплям. Объекты {@link Tube} создаются только
+ * по запросу ({@link #getTubes()}) — для печати и тестов.
+ */
 public class GameState {
-    private final List<Tube> tubes;
+    private final byte[] packed;
+    private final int tubeCount;
+    private final int capacity;
+    private final ZobristTable zobrist;
+    // хэш Зобриста; у детей обновляется инкрементально при переливании
+    private final long hash;
     private final GameState parent;
+    // хэш родителя — для отсечения обратного хода, даже если ссылка на родителя не хранится
+    private final long parentHash;
+    // номер состояния во внешнем хранилище пути (-1 — путь хранится цепочкой parent)
+    private final int pathIndex;
 
     // откуда и куда было перелито при переходе к этому состоянию
     private final int fromIndex;
     private final int toIndex;
-    
+
     // глубина (количество шагов от начального состояния)
     private final int depth;
 
+    // эвристика вычисляется один раз при первом обращении (-1 — ещё не вычислена)
+    private int heuristic = -1;
+
     public GameState(List<Tube> tubes, GameState parent, int fromIndex, int toIndex) {
-        this.tubes = tubes;
+        this(pack(tubes), tubes.size(), capacityOf(tubes), parent, fromIndex, toIndex);
+    }
+
+    public GameState(List<Tube> tubes) {
+        this(tubes, null, -1, -1);
+    }
+
+    private GameState(byte[] packed, int tubeCount, int capacity, GameState parent, int fromIndex, int toIndex) {
+        this(packed, tubeCount, capacity, ZobristTable.forSize(tubeCount, capacity), parent, fromIndex, toIndex);
+    }
+
+    private GameState(byte[] packed, int tubeCount, int capacity, ZobristTable zobrist,
+                      GameState parent, int fromIndex, int toIndex) {
+        this(packed, tubeCount, capacity, zobrist, zobrist.hash(packed, tubeCount, false), parent, fromIndex, toIndex);
+    }
+
+    GameState(byte[] packed, int tubeCount, int capacity, ZobristTable zobrist, long hash,
+              GameState parent, int fromIndex, int toIndex) {
+        this(packed, tubeCount, capacity, zobrist, hash, parent, parent != null ? parent.hash : 0L, -1,
+                fromIndex, toIndex, parent != null ? parent.depth + 1 : 0);
+    }
+
+    private GameState(byte[] packed, int tubeCount, int capacity, ZobristTable zobrist, long hash,
+                      GameState parent, long parentHash, int pathIndex, int fromIndex, int toIndex, int depth) {
+        this.packed = packed;
+        this.tubeCount = tubeCount;
+        this.capacity = capacity;
+        this.zobrist = zobrist;
+        this.hash = hash;
         this.parent = parent;
+        this.parentHash = parentHash;
+        this.pathIndex = pathIndex;
         this.fromIndex = fromIndex;
         this.toIndex = toIndex;
-        this.depth = parent != null ? parent.depth + 1 : 0;
+        this.depth = depth;
     }
 
-    public GameState(List<Tube> tubes) {
-        this.tubes = tubes;
-        this.parent = null;
-        this.fromIndex = -1;
-        this.toIndex = -1;
-        this.depth = 0;
+    /** Упаковывает список пробирок в массив (капли снизу вверх) */
+    private static byte[] pack(List<Tube> tubes) {
+        int capacity = capacityOf(tubes);
+        byte[] result = new byte[tubes.size() * (capacity + 1)];
+        for (int i = 0; i < tubes.size(); i++) {
+            Tube tube = tubes.get(i);
+            int offset = i * (capacity + 1);
+            int slot = tube.getElements().size() - 1;
+            for (Integer color : tube.getElements()) {
+                if (color == null || color < 1 || color > Byte.MAX_VALUE) {
+                    throw new IllegalArgumentException("Цвет должен быть в диапазоне 1.." + Byte.MAX_VALUE + ": " + color);
+                }
+                result[offset + 1 + slot--] = (byte) (int) color;
+            }
+            result[offset] = (byte) tube.getElements().size();
+        }
+        return result;
     }
-    
+
+    /** Общий объём пробирок; все пробирки одного состояния должны быть одинакового объёма */
+    private static int capacityOf(List<Tube> tubes) {
+        if (tubes.isEmpty()) return 0;
+        int capacity = tubes.get(0).getMaxSize();
+        for (Tube tube : tubes) {
+            if (tube.getMaxSize() != capacity) {
+                throw new IllegalArgumentException("Все пробирки должны иметь одинаковый объём");
+            }
+        }
+        if (capacity > Byte.MAX_VALUE) {
+            throw new IllegalArgumentException("Объём пробирки не может превышать " + Byte.MAX_VALUE);
+        }
+        return capacity;
+    }
+
     public int getDepth() {
         return depth;
     }
 
+    /** Представление состояния в виде пробирок (создаётся заново при каждом вызове) */
     public List<Tube> getTubes() {
+        List<Tube> tubes = new ArrayList<>(tubeCount);
+        for (int i = 0; i < tubeCount; i++) {
+            Deque<Integer> stack = new ArrayDeque<>();
+            for (int slot = tubeSize(i) - 1; slot >= 0; slot--) {
+                stack.addLast(colorAt(i, slot));
+            }
+            tubes.add(new Tube(stack, capacity));
+        }
         return tubes;
     }
 
+    /** Родитель; null у начального состояния и у состояний, отвязанных через {@link #detach(int)} */
     public GameState getParent() {
         return parent;
     }
 
+    /**
+     * Копия без ссылки на родителя: глубина, последний ход и отсечение обратного хода сохраняются,
+     * а предки больше не удерживаются в памяти. Путь к такому состоянию хранится снаружи
+     * под номером pathIndex (например, в {@code search.PathStore}).
+     */
+    public GameState detach(int pathIndex) {
+        GameState copy = new GameState(packed, tubeCount, capacity, zobrist, hash,
+                null, parentHash, pathIndex, fromIndex, toIndex, depth);
+        copy.heuristic = heuristic;
+        return copy;
+    }
+
+    /** Номер во внешнем хранилище пути или -1 */
+    public int getPathIndex() {
+        return pathIndex;
+    }
+
     public int getFromIndex() {
         return fromIndex;
     }
@@ -50,55 +157,142 @@ public class GameState {
         return toIndex;
     }
 
-    /** Глубокая копия всех пробирок */
-    private List<Tube> copyTubes() {
-        List<Tube> result = new ArrayList<>();
-        for (Tube t : tubes) {
-            result.add(t.copy());
+    public int getTubeCount() {
+        return tubeCount;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /** Количество капель в пробирке */
+    public int tubeSize(int tube) {
+        return packed[tube * (capacity + 1)];
+    }
+
+    /** Цвет капли в пробирке; slot 0 — самая нижняя капля */
+    public int colorAt(int tube, int slot) {
+        return packed[tube * (capacity + 1) + 1 + slot];
+    }
+
+    /** Цвет верхней капли или 0 для пустой пробирки */
+    public int topColor(int tube) {
+        int size = tubeSize(tube);
+        return size == 0 ? 0 : colorAt(tube, size - 1);
+    }
+
+    public boolean isTubeEmpty(int tube) {
+        return tubeSize(tube) == 0;
+    }
+
+    public boolean isTubeFull(int tube) {
+        return tubeSize(tube) >= capacity;
+    }
+
+    /** Проверяет, что пробирка отсортирована (все капли одного цвета) */
+    public boolean isTubeSorted(int tube) {
+        return countColorTransitions(tube) == 0;
+    }
+
+    /** Считает количество верхних капель одного цвета */
+    public int topColorGroup(int tube) {
+        int size = tubeSize(tube);
+        if (size == 0) return 0;
+        int offset = tube * (capacity + 1) + 1;
+        byte top = packed[offset + size - 1];
+        int count = 1;
+        while (count < size && packed[offset + size - 1 - count] == top) {
+            count++;
         }
-        return result;
+        return count;
+    }
+
+    /**
+     * Целевое состояние: каждая непустая пробирка одноцветная,
+     * и ни один цвет не встречается в двух пробирках.
+     */
+    public boolean isSolved() {
+        long seenColors0 = 0;
+        long seenColors1 = 0;
+        for (int i = 0; i < tubeCount; i++) {
+            if (isTubeEmpty(i)) continue;
+            if (!isTubeSorted(i)) return false;
+            int color = topColor(i);
+            if (color < 64) {
+                if ((seenColors0 & (1L << color)) != 0) return false;
+                seenColors0 |= 1L << color;
+            } else {
+                if ((seenColors1 & (1L << (color - 64))) != 0) return false;
+                seenColors1 |= 1L << (color - 64);
+            }
+        }
+        return true;
+    }
+
+    /** Изменяемая копия состояния для применения и отмены ходов на месте */
+    public MutableState toMutable() {
+        return new MutableState(packed.clone(), tubeCount, capacity, zobrist, hash);
     }
 
     /** Создание всех возможных детей из текущего состояния */
     public List<GameState> createChildren() {
+        return createChildren(candidate -> true);
+    }
+
+    /**
+     * Создание детей с фильтром, который вызывается до копирования состояния.
+     * Ход применяется к рабочей копии на месте; если filter его отклоняет
+     * (например, состояние уже есть в закрытом множестве), ход откатывается
+     * и новых объектов не создаётся.
+     */
+    public List<GameState> createChildren(Predicate<MutableState> filter) {
         List<GameState> children = new ArrayList<>();
+        generateMoves(filter, children, Integer.MAX_VALUE);
+        return children;
+    }
 
-        for (int i = 0; i < tubes.size(); i++) {
-            Tube from = tubes.get(i);
-            if (from.isEmpty()) continue;
+    /**
+     * Число ходов, которые породил бы {@link #createChildren()}, но не больше limit.
+     * Состояния-дети не создаются; используется для поиска тупиков и вынужденных ходов.
+     */
+    public int countMoves(int limit) {
+        return generateMoves(candidate -> true, null, limit);
+    }
+
+    /** Перебор ходов с фильтрами; дети добавляются в children, если он не null. Возвращает число принятых ходов */
+    private int generateMoves(Predicate<MutableState> filter, List<GameState> children, int limit) {
+        int accepted = 0;
+        MutableState work = null;
+
+        for (int i = 0; i < tubeCount; i++) {
+            if (isTubeEmpty(i)) continue;
 
             // ФИЛЬТР 1: Не трогаем уже отсортированные полные пробирки
-            if (from.isFull() && from.isSorted()) {
+            if (isTubeFull(i) && isTubeSorted(i)) {
                 continue;
             }
 
-            for (int j = 0; j < tubes.size(); j++) {
+            for (int j = 0; j < tubeCount; j++) {
                 if (i == j) continue;
-                Tube to = tubes.get(j);
-                if (to.isFull()) continue;
+                if (isTubeFull(j)) continue;
 
-                Integer colorFrom = from.peekTopColor();
-                Integer colorTo = to.peekTopColor();
+                int colorFrom = topColor(i);
+                int colorTo = topColor(j);
 
                 // Проверяем базовые условия переливания
-                if (to.isEmpty() || colorFrom.equals(colorTo)) {
-
-                    // ФИЛЬТР 2: Не делаем обратный ход
-                    if (parent != null && parent.fromIndex == j && parent.toIndex == i) {
-                        continue;
-                    }
+                if (isTubeEmpty(j) || colorFrom == colorTo) {
 
                     // ФИЛЬТР 3: Не переливаем всё содержимое пробирки в пустую
-                    if (to.isEmpty() && from.isSorted()) {
+                    if (isTubeEmpty(j) && isTubeSorted(i)) {
                         continue;
                     }
 
                     // ФИЛЬТР 4: Не переливаем из отсортированной непустой в пустую, если цвет уже присутствует в другой пробирке
-                    if (to.isEmpty() && from.isSorted() && !from.isFull()) {
+                    if (isTubeEmpty(j) && isTubeSorted(i) && !isTubeFull(i)) {
                         boolean colorExistsElsewhere = false;
-                        for (int k = 0; k < tubes.size(); k++) {
-                            if (k == i || tubes.get(k).isEmpty()) continue;
-                            if (colorFrom.equals(tubes.get(k).peekTopColor())) {
+                        for (int k = 0; k < tubeCount; k++) {
+                            if (k == i || isTubeEmpty(k)) continue;
+                            if (colorFrom == topColor(k)) {
                                 colorExistsElsewhere = true;
                                 break;
                             }
@@ -106,22 +300,158 @@ public class GameState {
                         if (colorExistsElsewhere) continue;
                     }
 
-                    List<Tube> newTubes = copyTubes();
-                    Tube newFrom = newTubes.get(i);
-                    Tube newTo = newTubes.get(j);
+                    if (work == null) work = toMutable();
+                    int poured = work.applyMove(i, j);
+                    if (poured == 0) continue;
+
+                    // ФИЛЬТР 2: Не делаем обратный ход, возвращающий в родительское состояние.
+                    // Ход j -> i в обратную сторону, переливший больше капель, — уже другое состояние;
+                    // его отсечение сделало бы набор детей зависящим от пути и ломало бы кратчайший A*
+                    if (fromIndex == j && toIndex == i && work.fingerprint() == parentHash) {
+                        work.undoMove(i, j, poured);
+                        continue;
+                    }
+
+                    // Добавляем новое состояние, указывая действие i -> j
+                    if (filter.test(work)) {
+                        if (children != null) children.add(work.freeze(this, i, j));
+                        accepted++;
+                    }
+                    work.undoMove(i, j, poured);
+                    if (accepted == limit) return accepted;
+                }
+            }
+        }
+        return accepted;
+    }
 
-                    if (newTo.canNotPourFrom(newFrom)) continue;
+    /**
+     * Создание предшественников — состояний, из которых один ход from -> to ведёт в текущее.
+     * У предшественника parent — текущее состояние, а fromIndex/toIndex — прямой ход,
+     * возвращающий к нему. Отсекаются те же ходы, что и в {@link #createChildren}
+     * (фильтры 1 и 3), так что путь из предшественников проходим прямым поиском.
+     */
+    public List<GameState> createParents(Predicate<MutableState> filter) {
+        List<GameState> parents = new ArrayList<>();
+        MutableState work = null;
 
-                    newTo.pourAllOfColorFrom(newFrom);
+        for (int to = 0; to < tubeCount; to++) {
+            if (isTubeEmpty(to)) continue;
+            int color = topColor(to);
+            int group = topColorGroup(to);
+            int toSize = tubeSize(to);
 
-                    if (newFrom.equals(from) && newTo.equals(to)) continue;
+            for (int count = 1; count <= group; count++) {
+                // до хода верх приёмника был того же цвета или приёмник был пуст
+                if (count == group && group < toSize) continue;
+                boolean targetWasEmpty = count == toSize;
 
-                    // Добавляем новое состояние, указывая действие i -> j
-                    children.add(new GameState(newTubes, this, i, j));
+                for (int from = 0; from < tubeCount; from++) {
+                    if (from == to || capacity - tubeSize(from) < count) continue;
+                    boolean sourceKeepsColor = !isTubeEmpty(from) && topColor(from) == color;
+                    // ход переливает максимум: если под каплями остался тот же цвет, приёмник заполнился
+                    if (sourceKeepsColor && !isTubeFull(to)) continue;
+
+                    boolean sourceWasSorted = isTubeEmpty(from) || (sourceKeepsColor && isTubeSorted(from));
+                    // ФИЛЬТР 1: источник был полной отсортированной пробиркой
+                    if (sourceWasSorted && tubeSize(from) + count == capacity) continue;
+                    // ФИЛЬТР 3: всё содержимое отсортированной пробирки перелито в пустую
+                    if (sourceWasSorted && targetWasEmpty) continue;
+
+                    if (work == null) work = toMutable();
+                    work.undoMove(from, to, count);
+                    if (filter.test(work)) {
+                        parents.add(work.freeze(this, from, to));
+                    }
+                    work.applyMove(from, to);
                 }
             }
         }
-        return children;
+        return parents;
+    }
+
+    /** 64-битный отпечаток состояния для закрытого множества (хэш Зобриста, O(1)) */
+    public long fingerprint() {
+        return hash;
+    }
+
+    /**
+     * Второй независимый отпечаток по отдельной таблице Зобриста — вместе с
+     * {@link #fingerprint()} даёт 128 бит. Не хранится в состоянии и вычисляется по всем каплям;
+     * кандидатов поиск проверяет через {@link MutableState}, где он обновляется по ходам.
+     */
+    public long secondaryFingerprint() {
+        return zobrist.hash(packed, tubeCount, true);
+    }
+
+    /**
+     * Канонический отпечаток: одинаков для состояний, отличающихся только порядком пробирок.
+     * Позволяет не исследовать повторно перестановки уже пройденных состояний.
+     */
+    public long canonicalFingerprint() {
+        return zobrist.canonicalHash(packed, tubeCount, false);
+    }
+
+    public long secondaryCanonicalFingerprint() {
+        return zobrist.canonicalHash(packed, tubeCount, true);
+    }
+
+    /**
+     * Канонический порядок пробирок: result[k] — реальный номер пробирки,
+     * стоящей k-й после сортировки упакованных кодировок. Связывает каноническую
+     * форму с настоящими номерами пробирок, которые печатаются в решении.
+     */
+    public int[] canonicalOrder() {
+        return canonicalOrder(packed, tubeCount, capacity + 1);
+    }
+
+    /** Упакованное состояние с пробирками в каноническом порядке */
+    public byte[] canonicalKey() {
+        byte[] key = new byte[packed.length];
+        writeCanonicalKey(packed, tubeCount, capacity + 1, key, 0);
+        return key;
+    }
+
+    /**
+     * Состояние из упакованной кодировки того же формата, что {@link #canonicalKey()}
+     * (по capacity + 1 байт на пробирку: размер, затем капли снизу вверх).
+     */
+    public static GameState fromPacked(byte[] packed, int tubeCount, int capacity) {
+        if (packed.length != tubeCount * (capacity + 1)) {
+            throw new IllegalArgumentException("Неверная длина упакованного состояния: " + packed.length);
+        }
+        return new GameState(packed.clone(), tubeCount, capacity, null, -1, -1);
+    }
+
+    /** Сортировка вставками: пробирок мало, и так обходится без упаковки индексов в Integer */
+    static int[] canonicalOrder(byte[] packed, int tubeCount, int stride) {
+        int[] order = new int[tubeCount];
+        for (int i = 0; i < tubeCount; i++) {
+            int tube = i;
+            int k = i;
+            while (k > 0 && Arrays.compare(packed, order[k - 1] * stride, order[k - 1] * stride + stride,
+                    packed, tube * stride, tube * stride + stride) > 0) {
+                order[k] = order[k - 1];
+                k--;
+            }
+            order[k] = tube;
+        }
+        return order;
+    }
+
+    static void writeCanonicalKey(byte[] packed, int tubeCount, int stride, byte[] out, int offset) {
+        int[] order = canonicalOrder(packed, tubeCount, stride);
+        for (int k = 0; k < tubeCount; k++) {
+            System.arraycopy(packed, order[k] * stride, out, offset + k * stride, stride);
+        }
+    }
+
+    /** Равенство с точностью до перестановки пробирок */
+    public boolean isPermutationOf(GameState other) {
+        if (this == other) return true;
+        if (tubeCount != other.tubeCount || capacity != other.capacity) return false;
+        if (canonicalFingerprint() != other.canonicalFingerprint()) return false;
+        return Arrays.equals(canonicalKey(), other.canonicalKey());
     }
 
     @Override
@@ -129,22 +459,16 @@ public class GameState {
         if (this == obj) return true;
         if (obj instanceof GameState) {
             GameState other = (GameState) obj;
-            if (this.tubes.size() != other.tubes.size()) return false;
-            for(int i = 0; i < tubes.size(); i++) {
-                if(!tubes.get(i).equals(other.tubes.get(i))) return false;
-            }
-            return true;
+            // несовпадение хэша отсекает почти все сравнения за O(1)
+            if (this.hash != other.hash) return false;
+            return this.capacity == other.capacity && Arrays.equals(this.packed, other.packed);
         }
         return false;
     }
 
     @Override
     public int hashCode() {
-        int hash = 1;
-        for (Tube t : tubes) {
-            hash = 31 * hash + (t == null ? 0 : t.hashCode());
-        }
-        return hash;
+        return Long.hashCode(hash);
     }
 
 
@@ -152,65 +476,68 @@ public class GameState {
     public String toString() {
         StringBuilder sb = new StringBuilder();
         int index = 0;
-        for (Tube t : tubes) {
+        for (Tube t : getTubes()) {
             sb.append("Tube ").append(index++).append(": ").append(t).append("\n");
         }
         return sb.toString();
     }
-    
+
     /**
      * Эвристическая функция: оценка "расстояния" до целевого состояния.
-     * Чем меньше значение, тем ближе к решению.
+     * Чем меньше значение, тем ближе к решению. Значение кэшируется в состоянии.
      */
     public int calculateHeuristic() {
+        int h = heuristic;
+        if (h < 0) {
+            h = computeHeuristic();
+            heuristic = h;
+        }
+        return h;
+    }
+
+    private int computeHeuristic() {
         int penalty = 0;
-        
-        for (Tube tube : tubes) {
-            if (tube.isEmpty()) {
+
+        for (int i = 0; i < tubeCount; i++) {
+            if (isTubeEmpty(i)) {
                 // Пустая пробирка - это хорошо (ничего не добавляем)
                 continue;
             }
-            
-            if (tube.isSorted()) {
+
+            int transitions = countColorTransitions(i);
+            if (transitions == 0) {
                 // Если не полная - небольшой штраф, чтобы стимулировать заполнение
-                if (!tube.isFull()) {
+                if (!isTubeFull(i)) {
                     penalty += 1;
                 }
             } else {
                 // Пробирка смешана - считаем количество "переходов" между цветами
-                int transitions = countColorTransitions(tube);
                 // Каждый переход - это проблема, которую нужно решить
                 penalty += transitions * 3;
-                
+
                 // Дополнительный штраф за смешанную пробирку
                 penalty += 5;
             }
         }
-        
+
         return penalty;
     }
-    
+
     /**
      * Считает количество переходов между разными цветами в пробирке.
      */
-    private int countColorTransitions(Tube tube) {
-        if (tube.isEmpty()) return 0;
-        
-        List<Integer> elements = new ArrayList<>(tube.getElements());
-        if (elements.size() <= 1) return 0;
-        
+    private int countColorTransitions(int tube) {
+        int size = tubeSize(tube);
+        int offset = tube * (capacity + 1) + 1;
         int transitions = 0;
-        Integer prevColor = elements.get(0);
-        for (int i = 1; i < elements.size(); i++) {
-            Integer currentColor = elements.get(i);
-            if (!currentColor.equals(prevColor)) {
+        for (int k = 1; k < size; k++) {
+            if (packed[offset + k] != packed[offset + k - 1]) {
                 transitions++;
-                prevColor = currentColor;
             }
         }
         return transitions;
     }
-    
+
     /**
      * Общая стоимость для A*
      */
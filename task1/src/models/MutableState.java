@@ -0,0 +1,159 @@
+package models;
+
+/**
+ * Изменяемая рабочая копия упакованного состояния.
+ * Ход применяется на месте ({@link #applyMove}) и откатывается ({@link #undoMove}),
+ * так что перебор ходов не копирует пробирки. Новый {@link GameState}
+ * создаётся только для принятых ходов через {@link #freeze}.
+ */
+public class MutableState {
+    private final byte[] packed;
+    private final int tubeCount;
+    private final int capacity;
+    private final int stride;
+    private final ZobristTable zobrist;
+    private long hash;
+    // второй и канонические хэши считаются при первом запросе и дальше обновляются по ходу:
+    // второй — по перенесённым каплям, канонические — по двум пробиркам
+    private long secondaryHash;
+    private boolean secondaryValid;
+    private long canonicalHash;
+    private boolean canonicalValid;
+    private long secondaryCanonicalHash;
+    private boolean secondaryCanonicalValid;
+
+    MutableState(byte[] packed, int tubeCount, int capacity, ZobristTable zobrist, long hash) {
+        this.packed = packed;
+        this.tubeCount = tubeCount;
+        this.capacity = capacity;
+        this.stride = capacity + 1;
+        this.zobrist = zobrist;
+        this.hash = hash;
+    }
+
+    public int getTubeCount() {
+        return tubeCount;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int tubeSize(int tube) {
+        return packed[tube * stride];
+    }
+
+    public int colorAt(int tube, int slot) {
+        return packed[tube * stride + 1 + slot];
+    }
+
+    public int topColor(int tube) {
+        int size = tubeSize(tube);
+        return size == 0 ? 0 : colorAt(tube, size - 1);
+    }
+
+    /** Количество верхних капель одного цвета */
+    public int topColorGroup(int tube) {
+        int size = tubeSize(tube);
+        if (size == 0) return 0;
+        int offset = tube * stride + 1;
+        byte top = packed[offset + size - 1];
+        int count = 1;
+        while (count < size && packed[offset + size - 1 - count] == top) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Переливает на месте все верхние капли одного цвета из from в to (сколько поместится).
+     * Возвращает число перелитых капель — его нужно передать в {@link #undoMove}.
+     * Возвращает 0, если переливание невозможно; состояние при этом не меняется.
+     */
+    public int applyMove(int from, int to) {
+        if (from == to) return 0;
+        int toSize = tubeSize(to);
+        if (tubeSize(from) == 0 || toSize >= capacity) return 0;
+        if (toSize != 0 && topColor(to) != topColor(from)) return 0;
+        int count = Math.min(topColorGroup(from), capacity - toSize);
+        moveBalls(from, to, count);
+        return count;
+    }
+
+    /** Отменяет ход from -> to, вернув count капель обратно */
+    public void undoMove(int from, int to, int count) {
+        moveBalls(to, from, count);
+    }
+
+    private void moveBalls(int from, int to, int count) {
+        if (canonicalValid) {
+            canonicalHash -= zobrist.tubeHash(packed, from, false) + zobrist.tubeHash(packed, to, false);
+        }
+        if (secondaryCanonicalValid) {
+            secondaryCanonicalHash -= zobrist.tubeHash(packed, from, true) + zobrist.tubeHash(packed, to, true);
+        }
+        int fromOffset = from * stride;
+        int toOffset = to * stride;
+        int fromSize = packed[fromOffset];
+        int toSize = packed[toOffset];
+        for (int k = 0; k < count; k++) {
+            int color = packed[fromOffset + fromSize - k];
+            packed[toOffset + 1 + toSize + k] = (byte) color;
+            packed[fromOffset + fromSize - k] = 0;
+            // капля уходит со слота fromSize-1-k пробирки from на слот toSize+k пробирки to
+            hash ^= zobrist.primary(from, fromSize - 1 - k, color) ^ zobrist.primary(to, toSize + k, color);
+            if (secondaryValid) {
+                secondaryHash ^= zobrist.secondary(from, fromSize - 1 - k, color) ^ zobrist.secondary(to, toSize + k, color);
+            }
+        }
+        packed[fromOffset] = (byte) (fromSize - count);
+        packed[toOffset] = (byte) (toSize + count);
+        if (canonicalValid) {
+            canonicalHash += zobrist.tubeHash(packed, from, false) + zobrist.tubeHash(packed, to, false);
+        }
+        if (secondaryCanonicalValid) {
+            secondaryCanonicalHash += zobrist.tubeHash(packed, from, true) + zobrist.tubeHash(packed, to, true);
+        }
+    }
+
+    /** Хэш Зобриста текущего содержимого (совпадает с {@link GameState#fingerprint()}) */
+    public long fingerprint() {
+        return hash;
+    }
+
+    /** Второй отпечаток (совпадает с {@link GameState#secondaryFingerprint()}) */
+    public long secondaryFingerprint() {
+        if (!secondaryValid) {
+            secondaryHash = zobrist.hash(packed, tubeCount, true);
+            secondaryValid = true;
+        }
+        return secondaryHash;
+    }
+
+    /** Канонический отпечаток (совпадает с {@link GameState#canonicalFingerprint()}) */
+    public long canonicalFingerprint() {
+        if (!canonicalValid) {
+            canonicalHash = zobrist.canonicalHash(packed, tubeCount, false);
+            canonicalValid = true;
+        }
+        return canonicalHash;
+    }
+
+    public long secondaryCanonicalFingerprint() {
+        if (!secondaryCanonicalValid) {
+            secondaryCanonicalHash = zobrist.canonicalHash(packed, tubeCount, true);
+            secondaryCanonicalValid = true;
+        }
+        return secondaryCanonicalHash;
+    }
+
+    /** Записывает в out с позиции offset упакованное состояние в каноническом порядке пробирок ({@link GameState#canonicalKey()}) */
+    public void writeCanonicalKey(byte[] out, int offset) {
+        GameState.writeCanonicalKey(packed, tubeCount, stride, out, offset);
+    }
+
+    /** Неизменяемый снимок текущего содержимого как ребёнок parent, полученный ходом from -> to */
+    public GameState freeze(GameState parent, int from, int to) {
+        return new GameState(packed.clone(), tubeCount, capacity, zobrist, hash, parent, from, to);
+    }
+}
@@ -0,0 +1,89 @@
+package models;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Генератор заведомо решаемых головоломок.
+ * Начинает с решённого состояния (каждый цвет в своей полной пробирке, остальные пусты)
+ * и делает случайные обратные ходы ({@link GameState#createParents}). Каждый обратный ход —
+ * это прямой ход, проделанный назад, поэтому цепочка в обратном порядке решает головоломку.
+ * При одинаковом seed результат одинаков.
+ */
+public class PuzzleGenerator {
+    /** Предел работы перемешивания: шагов вперёд и назад на каждый запрошенный ход */
+    private static final int WORK_PER_MOVE = 64;
+
+    private final int colors;
+    private final int capacity;
+    private final int tubeCount;
+
+    /**
+     * @param colors    число цветов, каждый по capacity капель
+     * @param capacity  объём пробирки
+     * @param tubeCount число пробирок (не меньше colors)
+     */
+    public PuzzleGenerator(int colors, int capacity, int tubeCount) {
+        if (colors < 1 || capacity < 1 || capacity > Byte.MAX_VALUE || tubeCount < colors) {
+            throw new IllegalArgumentException("Некорректные параметры генератора: цветов " + colors
+                    + ", объём " + capacity + ", пробирок " + tubeCount);
+        }
+        this.colors = colors;
+        this.capacity = capacity;
+        this.tubeCount = tubeCount;
+    }
+
+    /** Решённое состояние, с которого начинается перемешивание */
+    public GameState solvedState() {
+        List<Tube> tubes = new ArrayList<>(tubeCount);
+        for (int t = 0; t < tubeCount; t++) {
+            Deque<Integer> stack = new ArrayDeque<>();
+            if (t < colors) {
+                for (int k = 0; k < capacity; k++) stack.push(t + 1);
+            }
+            tubes.add(new Tube(stack, capacity));
+        }
+        return new GameState(tubes);
+    }
+
+    /**
+     * Головоломка из scrambleMoves случайных обратных ходов. Уже пройденные состояния
+     * не повторяются. Случайная цепочка быстро упирается в состояния без предшественников,
+     * поэтому из тупика делается шаг назад и выбирается другой ход; если за
+     * {@link #WORK_PER_MOVE} * scrambleMoves шагов нужной длины достичь не удалось,
+     * возвращается самое глубокое из встреченных состояний.
+     * Возвращённое состояние не связано с цепочкой перемешивания (родителя нет).
+     */
+    public GameState generate(int scrambleMoves, long seed) {
+        Random random = new Random(seed);
+        GameState solved = solvedState();
+        Set<Long> seen = new HashSet<>();
+        seen.add(solved.fingerprint());
+        Deque<GameState> walk = new ArrayDeque<>();
+        walk.push(solved);
+        GameState deepest = solved;
+        int deepestLength = 0;
+
+        long work = (long) WORK_PER_MOVE * scrambleMoves;
+        while (!walk.isEmpty() && walk.size() - 1 < scrambleMoves && work-- > 0) {
+            List<GameState> parents = walk.peek().createParents(candidate -> !seen.contains(candidate.fingerprint()));
+            if (parents.isEmpty()) {
+                walk.pop();
+                continue;
+            }
+            GameState next = parents.get(random.nextInt(parents.size()));
+            seen.add(next.fingerprint());
+            walk.push(next);
+            if (walk.size() - 1 > deepestLength) {
+                deepestLength = walk.size() - 1;
+                deepest = next;
+            }
+        }
+        return new GameState(deepest.getTubes());
+    }
+}
@@ -17,6 +17,7 @@ public class Tube {
     public boolean isFull() { return currentSize >= maxSize; }
 
     public Deque<Integer> getElements() { return elements; }
+    public int getMaxSize() { return maxSize; }
 
     public Integer peekTopColor() {
         return isEmpty() ? null : elements.peekFirst();
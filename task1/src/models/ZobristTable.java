@@ -0,0 +1,110 @@
+package models;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Таблица случайных чисел для хэширования Зобриста.
+ * Каждой тройке (пробирка, позиция, цвет) соответствует случайное 64-битное число;
+ * хэш состояния — XOR чисел всех капель. Переливание k капель меняет хэш
+ * за 2k операций XOR, без пересчёта остальных пробирок.
+ * Таблицы детерминированы и общие для всех состояний одного размера.
+ * <p>
+ * Для канонического режима (симметрия перестановки пробирок) есть вторая пара таблиц
+ * без номера пробирки: хэш пробирки — XOR чисел (позиция, цвет) её капель, а хэш
+ * состояния — сумма перемешанных хэшей пробирок. Сумма коммутативна, поэтому
+ * не зависит от порядка пробирок.
+ */
+final class ZobristTable {
+    private static final int COLORS = Byte.MAX_VALUE + 1;
+    private static final ConcurrentHashMap<Long, ZobristTable> CACHE = new ConcurrentHashMap<>();
+
+    private final long[] primary;
+    private final long[] secondary;
+    private final long[] primaryTube;
+    private final long[] secondaryTube;
+    private final int capacity;
+
+    private ZobristTable(int tubeCount, int capacity) {
+        this.capacity = capacity;
+        int length = tubeCount * capacity * COLORS;
+        this.primary = new long[length];
+        this.secondary = new long[length];
+        SplittableRandom random = new SplittableRandom(0x5EED_0F_7AB1EL ^ ((long) tubeCount << 32) ^ capacity);
+        for (int i = 0; i < length; i++) {
+            primary[i] = random.nextLong();
+            secondary[i] = random.nextLong();
+        }
+        this.primaryTube = new long[capacity * COLORS];
+        this.secondaryTube = new long[capacity * COLORS];
+        for (int i = 0; i < primaryTube.length; i++) {
+            primaryTube[i] = random.nextLong();
+            secondaryTube[i] = random.nextLong();
+        }
+    }
+
+    static ZobristTable forSize(int tubeCount, int capacity) {
+        long key = ((long) tubeCount << 32) | capacity;
+        return CACHE.computeIfAbsent(key, k -> new ZobristTable(tubeCount, capacity));
+    }
+
+    /** Число для капли цвета color на позиции slot (0 — дно) пробирки tube */
+    long primary(int tube, int slot, int color) {
+        return primary[(tube * capacity + slot) * COLORS + color];
+    }
+
+    long secondary(int tube, int slot, int color) {
+        return secondary[(tube * capacity + slot) * COLORS + color];
+    }
+
+    /**
+     * Полный хэш упакованного состояния по всем каплям, O(число капель).
+     * Основной хэш так считается только при создании из пробирок; второй — при каждом вызове
+     * {@link GameState#secondaryFingerprint()} и при первом запросе у {@link MutableState},
+     * дальше он обновляется по ходам через {@link #secondary(int, int, int)}
+     */
+    long hash(byte[] packed, int tubeCount, boolean useSecondary) {
+        long[] values = useSecondary ? secondary : primary;
+        int stride = capacity + 1;
+        long h = 0;
+        for (int tube = 0; tube < tubeCount; tube++) {
+            int offset = tube * stride;
+            int size = packed[offset];
+            for (int slot = 0; slot < size; slot++) {
+                h ^= values[(tube * capacity + slot) * COLORS + packed[offset + 1 + slot]];
+            }
+        }
+        return h;
+    }
+
+    /** Хэш одной пробирки, не зависящий от её номера (0 для пустой) */
+    long tubeHash(byte[] packed, int tube, boolean useSecondary) {
+        long[] values = useSecondary ? secondaryTube : primaryTube;
+        int offset = tube * (capacity + 1);
+        int size = packed[offset];
+        long h = 0;
+        for (int slot = 0; slot < size; slot++) {
+            h ^= values[slot * COLORS + packed[offset + 1 + slot]];
+        }
+        return mix(h);
+    }
+
+    /** Канонический хэш: сумма хэшей пробирок, инвариантная к их перестановке */
+    long canonicalHash(byte[] packed, int tubeCount, boolean useSecondary) {
+        long h = 0;
+        for (int tube = 0; tube < tubeCount; tube++) {
+            h += tubeHash(packed, tube, useSecondary);
+        }
+        return h;
+    }
+
+    // финальное перемешивание fmix64 из MurmurHash3; mix(0) == 0
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
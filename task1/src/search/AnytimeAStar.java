@@ -0,0 +1,180 @@
+package search;
+
+import models.GameState;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Anytime A* (ARA*): серия поисков взвешенного A* с f = g + w*h и убывающим w.
+ * <p>
+ * Первое решение при большом w находится почти жадно, за миллисекунды; каждая
+ * следующая итерация с меньшим w продолжает с той же открытой очередью и таблицей
+ * глубин, а не начинает заново. Закрытое множество сбрасывается между итерациями;
+ * состояния, путь к которым улучшился уже после закрытия, копятся отдельно
+ * и возвращаются в очередь в начале следующей итерации. Каждое более короткое решение
+ * сразу передаётся в callback. Поиск останавливается по бюджету (обычно по времени)
+ * с лучшим найденным решением, а с допустимой эвристикой после итерации с w = 1
+ * это решение доказанно кратчайшее.
+ */
+public class AnytimeAStar {
+    /** Веса итераций по умолчанию */
+    public static final double[] DEFAULT_WEIGHTS = {5.0, 3.0, 2.0, 1.5, 1.25, 1.0};
+
+    // веса переводятся в целые ключи очереди с шагом 1/WEIGHT_SCALE
+    private static final int WEIGHT_SCALE = 8;
+
+    private final int expectedStates;
+    private final StateKey stateKey;
+    private final Heuristic heuristic;
+    private final double[] weights;
+    private boolean budgetExhausted;
+    private boolean optimal;
+    private long statesExplored;
+    private int iterations;
+    private double weight;
+
+    public AnytimeAStar(int expectedStates, StateKey stateKey, Heuristic heuristic, double[] weights) {
+        if (weights.length == 0 || weights[weights.length - 1] < 1.0) {
+            throw new IllegalArgumentException("Веса должны быть не меньше 1, последний вес — итоговый");
+        }
+        for (int i = 1; i < weights.length; i++) {
+            if (weights[i] > weights[i - 1]) {
+                throw new IllegalArgumentException("Веса должны убывать: " + weights[i - 1] + ", " + weights[i]);
+            }
+        }
+        this.expectedStates = expectedStates;
+        this.stateKey = stateKey;
+        this.heuristic = heuristic;
+        this.weights = weights.clone();
+    }
+
+    /**
+     * Запускает поиск и возвращает лучшее найденное целевое состояние (или null).
+     * onImprovement получает каждое целевое состояние, которое короче всех предыдущих.
+     */
+    public GameState search(GameState start, SearchBudget budget, Consumer<GameState> onImprovement) {
+        SearchBudget running = budget.start();
+        budgetExhausted = false;
+        optimal = false;
+        statesExplored = 0;
+        iterations = 0;
+
+        int startEstimate = heuristic.estimate(start);
+        if (startEstimate == Heuristic.UNSOLVABLE) {
+            optimal = true;
+            return null;
+        }
+        if (start.isSolved()) {
+            optimal = true;
+            onImprovement.accept(start);
+            return start;
+        }
+
+        DepthTable depths = new DepthTable(expectedStates);
+        FingerprintSet closed = new FingerprintSet(expectedStates, false);
+        List<GameState> open = new ArrayList<>();
+        List<GameState> inconsistent = new ArrayList<>();
+        depths.improve(stateKey.primary(start), 0);
+        open.add(start);
+
+        GameState best = null;
+        int bestLength = Integer.MAX_VALUE;
+        boolean admissible = heuristic.isAdmissible();
+
+        // после последнего веса итерации повторяются, пока есть состояния с улучшенным путём,
+        // иначе «решения нет» не было бы доказано
+        for (int i = 0; i < weights.length || (best == null && !inconsistent.isEmpty()); i++) {
+            double w = weights[Math.min(i, weights.length - 1)];
+            weight = w;
+            iterations++;
+            int scaledWeight = (int) Math.round(w * WEIGHT_SCALE);
+            // очередь перестраивается под новый вес; устаревшие записи отбрасываются
+            BucketQueue<GameState> queue = new BucketQueue<>();
+            open.addAll(inconsistent);
+            inconsistent.clear();
+            for (GameState state : open) {
+                if (state.getDepth() > depths.get(stateKey.primary(state))) continue;
+                int estimate = heuristic.estimate(state);
+                if (admissible && state.getDepth() + estimate >= bestLength) continue;
+                queue.add(key(state.getDepth(), estimate, scaledWeight), state);
+            }
+            open.clear();
+            closed.clear();
+
+            while (!queue.isEmpty() && (best == null || queue.peekKey() < bestLength * WEIGHT_SCALE)) {
+                GameState current = queue.poll();
+                long currentKey = stateKey.primary(current);
+                if (current.getDepth() > depths.get(currentKey) || !closed.add(currentKey)) {
+                    continue;
+                }
+                statesExplored++;
+                if (running.isExhausted(statesExplored)) {
+                    budgetExhausted = true;
+                    return best;
+                }
+
+                int childDepth = current.getDepth() + 1;
+                if (childDepth >= bestLength) continue;
+                for (GameState child : current.createChildren(
+                        candidate -> depths.improve(stateKey.primary(candidate), childDepth))) {
+                    if (child.isSolved()) {
+                        // среди детей бывает несколько решённых раскладок одной длины
+                        if (childDepth >= bestLength) continue;
+                        best = child;
+                        bestLength = childDepth;
+                        onImprovement.accept(child);
+                        continue;
+                    }
+                    int estimate = heuristic.estimate(child);
+                    if (estimate == Heuristic.UNSOLVABLE) continue;
+                    if (admissible && childDepth + estimate >= bestLength) continue;
+                    if (closed.contains(stateKey.primary(child))) {
+                        inconsistent.add(child);
+                    } else {
+                        queue.add(key(childDepth, estimate, scaledWeight), child);
+                    }
+                }
+            }
+            // оставшиеся в очереди состояния переходят в следующую итерацию
+            while (!queue.isEmpty()) {
+                open.add(queue.poll());
+            }
+            if (best == null && open.isEmpty() && inconsistent.isEmpty()) {
+                // пространство исчерпано — решения нет
+                optimal = true;
+                return null;
+            }
+        }
+        optimal = admissible;
+        return best;
+    }
+
+    private static int key(int depth, int estimate, int scaledWeight) {
+        return depth * WEIGHT_SCALE + scaledWeight * estimate;
+    }
+
+    public boolean isBudgetExhausted() {
+        return budgetExhausted;
+    }
+
+    /** true, если результат последнего поиска доказанно кратчайший (или доказано, что решения нет) */
+    public boolean isOptimal() {
+        return optimal;
+    }
+
+    public long getStatesExplored() {
+        return statesExplored;
+    }
+
+    /** Число начатых итераций (весов) */
+    public int getIterations() {
+        return iterations;
+    }
+
+    /** Вес последней начатой итерации */
+    public double getWeight() {
+        return weight;
+    }
+}
@@ -0,0 +1,218 @@
+package search;
+
+import models.GameState;
+import models.MutableState;
+import models.Tube;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Двунаправленный поиск в ширину: вперёд от начального состояния и назад от цели.
+ * <p>
+ * С точностью до перестановки пробирок решённая конфигурация единственна
+ * (каждый цвет в своей пробирке, остальные пусты), поэтому обратный поиск
+ * стартует из одного состояния. Обратные ходы — {@link GameState#createParents}.
+ * Оба направления закрывают состояния по каноническому отпечатку и встречаются,
+ * когда ребёнок одного направления уже есть в закрытом множестве другого.
+ * Каждый шаг раскрывает целый слой того направления, у которого фронт меньше,
+ * так что первая встреча даёт кратчайший путь, а при глубине решения d
+ * раскрывается порядка двух деревьев глубины d/2 вместо одного глубины d.
+ */
+public class BidirectionalSearch {
+    private final int expectedStates;
+    private final boolean wideFingerprints;
+    private SearchBudget budget = SearchBudget.UNLIMITED;
+    private boolean budgetExhausted;
+    private long statesExplored;
+    private int forwardDepth;
+    private int backwardDepth;
+
+    public BidirectionalSearch(int expectedStates, boolean wideFingerprints) {
+        this.expectedStates = expectedStates;
+        this.wideFingerprints = wideFingerprints;
+    }
+
+    /** Запускает поиск и возвращает целевое состояние или null, если решения нет */
+    public GameState search(GameState start) {
+        return search(start, SearchBudget.UNLIMITED);
+    }
+
+    /**
+     * Поиск с ограничением. Возвращённое целевое состояние связано цепочкой родителей
+     * с start, как в A*: обратная половина пути переигрывается прямыми ходами
+     * в настоящих номерах пробирок начального состояния.
+     */
+    public GameState search(GameState start, SearchBudget budget) {
+        this.budget = budget.start();
+        budgetExhausted = false;
+        statesExplored = 0;
+        forwardDepth = 0;
+        backwardDepth = 0;
+
+        if (start.isSolved()) {
+            return start;
+        }
+        GameState goal = solvedConfiguration(start);
+        if (goal == null) {
+            return null;
+        }
+
+        Side forward = new Side(start, true);
+        Side backward = new Side(goal, false);
+
+        while (!forward.frontier.isEmpty() && !backward.frontier.isEmpty()) {
+            boolean forwardTurn = forward.frontier.size() <= backward.frontier.size();
+            Side side = forwardTurn ? forward : backward;
+            Side other = forwardTurn ? backward : forward;
+
+            GameState[] meeting = side.expandLayer(other);
+            if (budgetExhausted) {
+                return null;
+            }
+            if (forwardTurn) forwardDepth++;
+            else backwardDepth++;
+            if (meeting != null) {
+                return forwardTurn ? join(meeting[0], meeting[1]) : join(meeting[1], meeting[0]);
+            }
+        }
+        return null;
+    }
+
+    public boolean isBudgetExhausted() {
+        return budgetExhausted;
+    }
+
+    /** Суммарное число раскрытых состояний в обоих направлениях */
+    public long getStatesExplored() {
+        return statesExplored;
+    }
+
+    public int getForwardDepth() {
+        return forwardDepth;
+    }
+
+    public int getBackwardDepth() {
+        return backwardDepth;
+    }
+
+    /** Одно направление поиска: закрытое множество, текущий слой и все порождённые состояния */
+    private class Side {
+        private final boolean forward;
+        private final FingerprintSet closed;
+        private final List<GameState> reached = new ArrayList<>();
+        private List<GameState> frontier = new ArrayList<>();
+
+        Side(GameState root, boolean forward) {
+            this.forward = forward;
+            this.closed = new FingerprintSet(Math.max(16, expectedStates / 2), wideFingerprints);
+            closed.add(StateKey.CANONICAL.primary(root), secondary(root));
+            reached.add(root);
+            frontier.add(root);
+        }
+
+        /**
+         * Раскрывает текущий слой. Возвращает пару {своё состояние, состояние другого направления}
+         * при встрече или null.
+         */
+        GameState[] expandLayer(Side other) {
+            List<GameState> next = new ArrayList<>();
+            for (GameState state : frontier) {
+                statesExplored++;
+                if (budget.isExhausted(statesExplored)) {
+                    budgetExhausted = true;
+                    return null;
+                }
+                List<GameState> generated = forward
+                        ? state.createChildren(this::markVisited)
+                        : state.createParents(this::markVisited);
+                for (GameState child : generated) {
+                    GameState match = other.find(child);
+                    if (match != null) {
+                        return new GameState[]{child, match};
+                    }
+                    next.add(child);
+                    reached.add(child);
+                }
+            }
+            frontier = next;
+            return null;
+        }
+
+        /** Состояние этого направления, совпадающее с state с точностью до перестановки пробирок */
+        GameState find(GameState state) {
+            if (!closed.contains(StateKey.CANONICAL.primary(state), secondary(state))) {
+                return null;
+            }
+            // совпадение почти всегда в последнем слое, поэтому ищем с конца
+            for (int i = reached.size() - 1; i >= 0; i--) {
+                GameState candidate = reached.get(i);
+                if (candidate.isPermutationOf(state)) return candidate;
+            }
+            return null;
+        }
+
+        private boolean markVisited(MutableState candidate) {
+            long secondary = wideFingerprints ? StateKey.CANONICAL.secondary(candidate) : 0L;
+            return closed.add(StateKey.CANONICAL.primary(candidate), secondary);
+        }
+
+        private long secondary(GameState state) {
+            return wideFingerprints ? StateKey.CANONICAL.secondary(state) : 0L;
+        }
+    }
+
+    /**
+     * Склеивает путь: met из прямого поиска и его перестановка back из обратного.
+     * Ходы обратной цепочки записаны в номерах пробирок цели, поэтому
+     * переводятся в номера пробирок met через сопоставление канонических порядков.
+     */
+    private static GameState join(GameState met, GameState back) {
+        int[] metOrder = met.canonicalOrder();
+        int[] backOrder = back.canonicalOrder();
+        int[] toMet = new int[metOrder.length];
+        for (int k = 0; k < metOrder.length; k++) {
+            toMet[backOrder[k]] = metOrder[k];
+        }
+
+        GameState current = met;
+        for (GameState step = back; step.getParent() != null; step = step.getParent()) {
+            int from = toMet[step.getFromIndex()];
+            int to = toMet[step.getToIndex()];
+            MutableState work = current.toMutable();
+            if (work.applyMove(from, to) == 0) {
+                throw new IllegalStateException("Ход обратного поиска неприменим: " + from + " -> " + to);
+            }
+            current = work.freeze(current, from, to);
+        }
+        return current;
+    }
+
+    /**
+     * Решённая конфигурация из тех же капель: цвета по возрастанию в первых пробирках,
+     * остальные пусты. null — если какой-то цвет не помещается в одну пробирку
+     * или цветов больше, чем пробирок (решения нет).
+     */
+    private static GameState solvedConfiguration(GameState state) {
+        int[] counts = new int[Byte.MAX_VALUE + 1];
+        for (int t = 0; t < state.getTubeCount(); t++) {
+            for (int slot = 0; slot < state.tubeSize(t); slot++) {
+                counts[state.colorAt(t, slot)]++;
+            }
+        }
+        List<Tube> tubes = new ArrayList<>(state.getTubeCount());
+        for (int color = 1; color < counts.length; color++) {
+            if (counts[color] == 0) continue;
+            if (counts[color] > state.getCapacity() || tubes.size() == state.getTubeCount()) return null;
+            Deque<Integer> balls = new ArrayDeque<>();
+            for (int k = 0; k < counts[color]; k++) balls.add(color);
+            tubes.add(new Tube(balls, state.getCapacity()));
+        }
+        while (tubes.size() < state.getTubeCount()) {
+            tubes.add(new Tube(new ArrayDeque<>(), state.getCapacity()));
+        }
+        return new GameState(tubes);
+    }
+}
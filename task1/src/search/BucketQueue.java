@@ -0,0 +1,84 @@
+package search;
+
+import java.util.Arrays;
+
+/**
+ * Очередь с приоритетом для небольших целых ключей (f = g + h в A*).
+ * Для каждого значения ключа — отдельная корзина-стек, поэтому вставка
+ * и извлечение минимума выполняются за O(1) (амортизированно) без сравнений.
+ * Внутри корзины порядок LIFO: среди состояний с одинаковой оценкой первым
+ * извлекается последнее добавленное, то есть ребёнок самого глубокого узла.
+ */
+public class BucketQueue<T> {
+    private static final int INITIAL_BUCKET_SIZE = 8;
+
+    private Object[][] buckets;
+    private int[] sizes;
+    private int minKey;
+    private int size;
+
+    public BucketQueue() {
+        this(64);
+    }
+
+    public BucketQueue(int expectedMaxKey) {
+        this.buckets = new Object[Math.max(1, expectedMaxKey + 1)][];
+        this.sizes = new int[buckets.length];
+        this.minKey = buckets.length;
+    }
+
+    public void add(int key, T item) {
+        if (key < 0) {
+            throw new IllegalArgumentException("Ключ должен быть неотрицательным: " + key);
+        }
+        if (key >= buckets.length) {
+            int newLength = Math.max(key + 1, buckets.length * 2);
+            buckets = Arrays.copyOf(buckets, newLength);
+            sizes = Arrays.copyOf(sizes, newLength);
+        }
+        Object[] bucket = buckets[key];
+        if (bucket == null) {
+            bucket = new Object[INITIAL_BUCKET_SIZE];
+            buckets[key] = bucket;
+        } else if (sizes[key] == bucket.length) {
+            bucket = Arrays.copyOf(bucket, bucket.length * 2);
+            buckets[key] = bucket;
+        }
+        bucket[sizes[key]++] = item;
+        size++;
+        // при неконсистентной эвристике ключ может оказаться меньше текущего минимума
+        if (key < minKey) minKey = key;
+    }
+
+    /** Извлекает элемент с минимальным ключом или null, если очередь пуста */
+    @SuppressWarnings("unchecked")
+    public T poll() {
+        if (size == 0) return null;
+        while (sizes[minKey] == 0) {
+            minKey++;
+        }
+        Object[] bucket = buckets[minKey];
+        int last = --sizes[minKey];
+        T item = (T) bucket[last];
+        bucket[last] = null;
+        size--;
+        return item;
+    }
+
+    /** Минимальный ключ среди элементов очереди (-1, если очередь пуста) */
+    public int peekKey() {
+        if (size == 0) return -1;
+        while (sizes[minKey] == 0) {
+            minKey++;
+        }
+        return minKey;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+}
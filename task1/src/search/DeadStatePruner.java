@@ -0,0 +1,98 @@
+package search;
+
+import models.GameState;
+
+/**
+ * Отсечение заведомо тупиковых состояний до их попадания в очередь поиска.
+ * <p>
+ * Правила:
+ * <ul>
+ *     <li>состав капель — какой-то цвет не помещается в одну пробирку или цветов больше,
+ *     чем пробирок; ходы состав не меняют, поэтому проверяется только начальное состояние;</li>
+ *     <li>нет ходов — нерешённое состояние, из которого нет ни одного хода, кроме возврата
+ *     к родителю (родитель уже раскрыт, так что через это состояние решения не найти);</li>
+ *     <li>вынужденные ходы — если ход ровно один, состояние не ставится в очередь, а ход
+ *     сразу применяется; цепочка таких ходов сворачивается в один макроход. Промежуточные
+ *     состояния остаются в цепочке родителей, поэтому путь и глубина не меняются,
+ *     а кратчайшее решение с допустимой эвристикой сохраняется.</li>
+ * </ul>
+ * Счётчики показывают, сколько отсёк каждый из правил.
+ */
+public class DeadStatePruner {
+    /** Предел длины цепочки вынужденных ходов (защита от зацикливания) */
+    private static final int MAX_CHAIN = 64;
+
+    private long countViolations;
+    private long deadEnds;
+    private long forcedChains;
+    private long forcedMoves;
+
+    /**
+     * Проверка состава капель: каждый цвет помещается в одну пробирку
+     * и цветов не больше, чем пробирок. false — решения заведомо нет.
+     */
+    public boolean isSolvableByCounts(GameState state) {
+        int[] counts = new int[Byte.MAX_VALUE + 1];
+        for (int t = 0; t < state.getTubeCount(); t++) {
+            for (int slot = 0; slot < state.tubeSize(t); slot++) {
+                counts[state.colorAt(t, slot)]++;
+            }
+        }
+        int colors = 0;
+        for (int color = 1; color < counts.length; color++) {
+            if (counts[color] == 0) continue;
+            colors++;
+            if (counts[color] > state.getCapacity() || colors > state.getTubeCount()) {
+                countViolations++;
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Пропускает состояние через правила «нет ходов» и «вынужденные ходы».
+     * Возвращает null для тупика, иначе само состояние или конец цепочки вынужденных ходов из него.
+     */
+    public GameState prune(GameState state) {
+        GameState current = state;
+        for (int step = 0; step < MAX_CHAIN && !current.isSolved(); step++) {
+            int moves = current.countMoves(2);
+            if (moves == 0) {
+                deadEnds++;
+                return null;
+            }
+            if (moves > 1) break;
+            current = current.createChildren().get(0);
+            forcedMoves++;
+        }
+        if (current != state) forcedChains++;
+        return current;
+    }
+
+    /** Начальных состояний, отвергнутых по составу капель */
+    public long getCountViolations() {
+        return countViolations;
+    }
+
+    /** Отсечённых состояний без ходов */
+    public long getDeadEnds() {
+        return deadEnds;
+    }
+
+    /** Свёрнутых цепочек вынужденных ходов */
+    public long getForcedChains() {
+        return forcedChains;
+    }
+
+    /** Ходов, пропущенных через очередь благодаря сворачиванию цепочек */
+    public long getForcedMoves() {
+        return forcedMoves;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("состав капель: %d, тупиков: %d, цепочек вынужденных ходов: %d (%d ходов)",
+                countViolations, deadEnds, forcedChains, forcedMoves);
+    }
+}
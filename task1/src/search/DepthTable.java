@@ -0,0 +1,97 @@
+package search;
+
+/**
+ * Наименьшая известная глубина (g) для каждого отпечатка состояния — для поиска,
+ * в котором путь к уже встреченному состоянию может улучшиться ({@link AnytimeAStar}).
+ * Открытая адресация по параллельным long[]/int[] с линейным пробированием,
+ * удвоение при заполнении больше {@link FingerprintSet#MAX_LOAD_FACTOR}.
+ */
+public class DepthTable {
+    /** Глубина отпечатка, которого нет в таблице */
+    public static final int UNKNOWN = Integer.MAX_VALUE;
+
+    private static final long EMPTY = 0L;
+    private static final long ZERO_REPLACEMENT = 0x8000000000000001L;
+
+    private long[] keys;
+    private int[] depths;
+    private int mask;
+    private int shift;
+    private int size;
+    private int resizeThreshold;
+
+    public DepthTable(int expectedSize) {
+        long needed = (long) (expectedSize / FingerprintSet.MAX_LOAD_FACTOR) + 1;
+        int slots = 16;
+        while (slots < needed && slots < (1 << 30)) {
+            slots <<= 1;
+        }
+        allocate(slots);
+    }
+
+    /** Известная глубина или {@link #UNKNOWN} */
+    public int get(long fingerprint) {
+        long key = fingerprint == EMPTY ? ZERO_REPLACEMENT : fingerprint;
+        for (int slot = indexOf(key); ; slot = (slot + 1) & mask) {
+            if (keys[slot] == EMPTY) return UNKNOWN;
+            if (keys[slot] == key) return depths[slot];
+        }
+    }
+
+    /** Записывает depth, если она меньше известной; false — если путь не короче уже найденного */
+    public boolean improve(long fingerprint, int depth) {
+        if (size >= resizeThreshold) {
+            resize();
+        }
+        long key = fingerprint == EMPTY ? ZERO_REPLACEMENT : fingerprint;
+        for (int slot = indexOf(key); ; slot = (slot + 1) & mask) {
+            if (keys[slot] == EMPTY) {
+                keys[slot] = key;
+                depths[slot] = depth;
+                size++;
+                return true;
+            }
+            if (keys[slot] == key) {
+                if (depths[slot] <= depth) return false;
+                depths[slot] = depth;
+                return true;
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /** Объём памяти под таблицу в байтах */
+    public long memoryBytes() {
+        return (long) keys.length * (Long.BYTES + Integer.BYTES);
+    }
+
+    private int indexOf(long key) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> shift);
+    }
+
+    private void allocate(int slots) {
+        keys = new long[slots];
+        depths = new int[slots];
+        mask = slots - 1;
+        shift = 64 - Integer.numberOfTrailingZeros(slots);
+        resizeThreshold = (int) (slots * FingerprintSet.MAX_LOAD_FACTOR);
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        int[] oldDepths = depths;
+        allocate(oldKeys.length * 2);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == EMPTY) continue;
+            int slot = indexOf(oldKeys[i]);
+            while (keys[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = oldKeys[i];
+            depths[slot] = oldDepths[i];
+        }
+    }
+}
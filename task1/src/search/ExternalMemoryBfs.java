@@ -0,0 +1,342 @@
+package search;
+
+import models.GameState;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.stream.Stream;
+
+/**
+ * Поиск в ширину с внешней памятью для полной проверки решаемости.
+ * <p>
+ * Состояния хранятся на диске в канонической упакованной форме
+ * ({@link GameState#canonicalKey()}) — записи фиксированной длины, точное сравнение
+ * без отпечатков, поэтому ответ «решения нет» не зависит от коллизий хэша.
+ * Дети текущего слоя копятся в буфере на statesInMemory записей; заполненный буфер
+ * сортируется и сбрасывается в файл-серию. После слоя серии сливаются, дубликаты
+ * удаляются, а результат сливается с отсортированным файлом всех ранее пройденных
+ * состояний: новое становится следующим слоем и добавляется в этот файл.
+ * Файлы читаются через отображение в память окнами, так что в памяти одновременно
+ * находятся только буфер детей и по окну на каждую сливаемую серию.
+ * <p>
+ * Путь решения не восстанавливается — результат только длина кратчайшего решения.
+ */
+public class ExternalMemoryBfs {
+    public static final int UNSOLVABLE = -1;
+
+    private static final long WINDOW_BYTES = 1 << 26;
+
+    private final Path workDirectory;
+    private final int statesInMemory;
+    private SearchBudget budget = SearchBudget.UNLIMITED;
+    private boolean budgetExhausted;
+    private long statesExplored;
+    private long peakDiskBytes;
+    private int layers;
+
+    private Path directory;
+    private int recordSize;
+    private byte[] buffer;
+    private int buffered;
+    private final List<Path> runs = new ArrayList<>();
+    private int fileCounter;
+
+    /**
+     * @param workDirectory  каталог для временных файлов (создаётся свой подкаталог, удаляется после поиска)
+     * @param statesInMemory сколько детей держать в памяти до сброса серии на диск
+     */
+    public ExternalMemoryBfs(Path workDirectory, int statesInMemory) {
+        if (statesInMemory < 1) {
+            throw new IllegalArgumentException("Размер буфера должен быть положительным: " + statesInMemory);
+        }
+        this.workDirectory = workDirectory;
+        this.statesInMemory = statesInMemory;
+    }
+
+    /** Длина кратчайшего решения или {@link #UNSOLVABLE} */
+    public int search(GameState start) {
+        return search(start, SearchBudget.UNLIMITED);
+    }
+
+    /**
+     * Поиск с ограничением. При исчерпании бюджета возвращает {@link #UNSOLVABLE}
+     * и {@link #isBudgetExhausted()} == true — решаемость тогда не установлена.
+     */
+    public int search(GameState start, SearchBudget budget) {
+        this.budget = budget.start();
+        budgetExhausted = false;
+        statesExplored = 0;
+        peakDiskBytes = 0;
+        layers = 0;
+        if (start.isSolved()) {
+            return 0;
+        }
+
+        int tubeCount = start.getTubeCount();
+        int capacity = start.getCapacity();
+        recordSize = tubeCount * (capacity + 1);
+        buffer = new byte[Math.multiplyExact(statesInMemory, recordSize)];
+        buffered = 0;
+        runs.clear();
+        try {
+            Files.createDirectories(workDirectory);
+            directory = Files.createTempDirectory(workDirectory, "bfs");
+            Path visited = newFile();
+            Path layer = newFile();
+            try (OutputStream v = output(visited); OutputStream l = output(layer)) {
+                v.write(start.canonicalKey());
+                l.write(start.canonicalKey());
+            }
+
+            while (Files.size(layer) > 0) {
+                if (!expand(layer, tubeCount, capacity)) {
+                    budgetExhausted = true;
+                    return UNSOLVABLE;
+                }
+                layers++;
+                Files.delete(layer);
+
+                Path nextLayer = newFile();
+                Path nextVisited = newFile();
+                boolean solved = mergeLayer(visited, nextLayer, nextVisited, tubeCount, capacity);
+                Files.delete(visited);
+                visited = nextVisited;
+                layer = nextLayer;
+                if (solved) {
+                    return layers;
+                }
+            }
+            return UNSOLVABLE;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Ошибка файлов поиска в ширину", e);
+        } finally {
+            buffer = null;
+            deleteDirectory();
+        }
+    }
+
+    public boolean isBudgetExhausted() {
+        return budgetExhausted;
+    }
+
+    public long getStatesExplored() {
+        return statesExplored;
+    }
+
+    /** Число пройденных слоёв (глубина последнего слоя) */
+    public int getLayers() {
+        return layers;
+    }
+
+    /** Наибольший объём временных файлов за поиск */
+    public long getPeakDiskBytes() {
+        return peakDiskBytes;
+    }
+
+    /** Раскрывает слой, сбрасывая детей сериями; false — исчерпан бюджет */
+    private boolean expand(Path layer, int tubeCount, int capacity) throws IOException {
+        try (RunReader reader = new RunReader(layer)) {
+            byte[] record = new byte[recordSize];
+            while (reader.advance()) {
+                statesExplored++;
+                if (budget.isExhausted(statesExplored)) {
+                    return false;
+                }
+                System.arraycopy(reader.current, 0, record, 0, recordSize);
+                GameState state = GameState.fromPacked(record, tubeCount, capacity);
+                // дети не материализуются: их каноническая форма сразу пишется в буфер
+                state.createChildren(candidate -> {
+                    if (buffered == statesInMemory) spill();
+                    candidate.writeCanonicalKey(buffer, buffered * recordSize);
+                    buffered++;
+                    return false;
+                });
+            }
+        }
+        spill();
+        return true;
+    }
+
+    /** Сортирует буфер и пишет его без повторов в новую серию */
+    private void spill() {
+        if (buffered == 0) return;
+        try {
+            int[] order = sortRecords();
+            Path run = newFile();
+            try (OutputStream out = output(run)) {
+                int previous = -1;
+                for (int index : order) {
+                    int offset = index * recordSize;
+                    if (previous >= 0 && Arrays.equals(buffer, previous, previous + recordSize,
+                            buffer, offset, offset + recordSize)) {
+                        continue;
+                    }
+                    out.write(buffer, offset, recordSize);
+                    previous = offset;
+                }
+            }
+            runs.add(run);
+            buffered = 0;
+            trackDiskUsage();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось записать серию", e);
+        }
+    }
+
+    /**
+     * Сливает серии в отсортированный поток без повторов и вычитает из него
+     * уже пройденные состояния. Возвращает true, если в новом слое есть решённое состояние.
+     */
+    private boolean mergeLayer(Path visited, Path nextLayer, Path nextVisited, int tubeCount, int capacity)
+            throws IOException {
+        PriorityQueue<RunReader> heap = new PriorityQueue<>((a, b) -> Arrays.compare(a.current, b.current));
+        List<RunReader> readers = new ArrayList<>();
+        boolean solved = false;
+        try (RunReader old = new RunReader(visited);
+             OutputStream layerOut = output(nextLayer);
+             OutputStream visitedOut = output(nextVisited)) {
+            for (Path run : runs) {
+                RunReader reader = new RunReader(run);
+                readers.add(reader);
+                if (reader.advance()) heap.add(reader);
+            }
+            boolean oldHasNext = old.advance();
+            byte[] last = null;
+            while (!heap.isEmpty()) {
+                RunReader top = heap.poll();
+                byte[] candidate = top.current.clone();
+                if (top.advance()) heap.add(top);
+                if (last != null && Arrays.equals(last, candidate)) continue;
+                last = candidate;
+
+                int cmp = 1;
+                while (oldHasNext && (cmp = Arrays.compare(old.current, candidate)) < 0) {
+                    visitedOut.write(old.current);
+                    oldHasNext = old.advance();
+                }
+                if (oldHasNext && cmp == 0) continue;
+
+                layerOut.write(candidate);
+                visitedOut.write(candidate);
+                if (!solved && GameState.fromPacked(candidate, tubeCount, capacity).isSolved()) {
+                    solved = true;
+                }
+            }
+            while (oldHasNext) {
+                visitedOut.write(old.current);
+                oldHasNext = old.advance();
+            }
+        } finally {
+            for (RunReader reader : readers) reader.close();
+        }
+        trackDiskUsage();
+        for (Path run : runs) Files.delete(run);
+        runs.clear();
+        return solved;
+    }
+
+    /** Сортировка слиянием номеров записей буфера (без упаковки в Integer) */
+    private int[] sortRecords() {
+        int[] order = new int[buffered];
+        int[] scratch = new int[buffered];
+        for (int i = 0; i < buffered; i++) order[i] = i;
+        for (int width = 1; width < buffered; width *= 2) {
+            for (int left = 0; left < buffered; left += 2 * width) {
+                int mid = Math.min(left + width, buffered);
+                int right = Math.min(left + 2 * width, buffered);
+                int i = left;
+                int j = mid;
+                for (int k = left; k < right; k++) {
+                    if (i < mid && (j >= right || compareRecords(order[i], order[j]) <= 0)) {
+                        scratch[k] = order[i++];
+                    } else {
+                        scratch[k] = order[j++];
+                    }
+                }
+            }
+            int[] swap = order;
+            order = scratch;
+            scratch = swap;
+        }
+        return order;
+    }
+
+    private int compareRecords(int a, int b) {
+        int offsetA = a * recordSize;
+        int offsetB = b * recordSize;
+        return Arrays.compare(buffer, offsetA, offsetA + recordSize, buffer, offsetB, offsetB + recordSize);
+    }
+
+    private Path newFile() {
+        return directory.resolve("part-" + (fileCounter++) + ".bin");
+    }
+
+    private static OutputStream output(Path file) throws IOException {
+        return new BufferedOutputStream(Files.newOutputStream(file), 1 << 16);
+    }
+
+    private void trackDiskUsage() throws IOException {
+        long total = 0;
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) total += Files.size(file);
+        }
+        peakDiskBytes = Math.max(peakDiskBytes, total);
+    }
+
+    private void deleteDirectory() {
+        if (directory == null) return;
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) Files.deleteIfExists(file);
+            Files.deleteIfExists(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось удалить временные файлы " + directory, e);
+        } finally {
+            directory = null;
+        }
+    }
+
+    /** Последовательное чтение записей файла через отображение в память окнами */
+    private class RunReader implements AutoCloseable {
+        private final FileChannel channel;
+        private final long size;
+        private final long window;
+        private final byte[] current = new byte[recordSize];
+        private MappedByteBuffer mapped;
+        private long position;
+
+        RunReader(Path file) throws IOException {
+            this.channel = FileChannel.open(file, StandardOpenOption.READ);
+            this.size = channel.size();
+            // окно кратно длине записи, чтобы запись не разрывалась между окнами
+            this.window = Math.max(1, WINDOW_BYTES / recordSize) * recordSize;
+        }
+
+        /** Переходит к следующей записи; false — файл закончился */
+        boolean advance() throws IOException {
+            if (mapped == null || !mapped.hasRemaining()) {
+                if (position >= size) return false;
+                long length = Math.min(window, size - position);
+                mapped = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                position += length;
+            }
+            mapped.get(current);
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package search;
+
+import java.util.Arrays;
+
+/**
+ * Закрытое множество A* на открытой адресации поверх long[].
+ * Хранит только отпечатки состояний (64 или 128 бит), а не сами объекты,
+ * поэтому не создаёт мусора на каждое добавление.
+ * Коллизии разрешаются линейным пробированием; таблица удваивается
+ * при заполнении больше чем на {@link #MAX_LOAD_FACTOR}.
+ */
+public class FingerprintSet {
+    public static final double MAX_LOAD_FACTOR = 0.7;
+
+    // 0 в первом слове означает пустую ячейку
+    private static final long EMPTY = 0L;
+    private static final long ZERO_REPLACEMENT = 0x8000000000000001L;
+    private static final int MAX_TABLE_LENGTH = 1 << 30;
+
+    private final int stride;
+    private final int maxSlots;
+    private long[] table;
+    private int mask;
+    private int shift;
+    private int size;
+    private int resizeThreshold;
+
+    private long lookups;
+    private long totalProbes;
+    private int maxProbeLength;
+
+    /**
+     * @param expectedSize ожидаемое число состояний (таблица сразу выделяется под него)
+     * @param wide         хранить 128-битные отпечатки вместо 64-битных
+     */
+    public FingerprintSet(int expectedSize, boolean wide) {
+        this.stride = wide ? 2 : 1;
+        this.maxSlots = MAX_TABLE_LENGTH / stride;
+        long needed = (long) (expectedSize / MAX_LOAD_FACTOR) + 1;
+        int slots = 16;
+        while (slots < needed && slots < maxSlots) {
+            slots <<= 1;
+        }
+        allocate(slots);
+    }
+
+    public FingerprintSet() {
+        this(1 << 16, false);
+    }
+
+    public boolean isWide() {
+        return stride == 2;
+    }
+
+    /** Добавляет отпечаток; возвращает false, если он уже был в множестве */
+    public boolean add(long fingerprint, long secondary) {
+        if (size >= resizeThreshold) {
+            resize();
+        }
+        long first = fingerprint == EMPTY ? ZERO_REPLACEMENT : fingerprint;
+        long second = stride == 2 ? secondary : 0L;
+        int slot = indexOf(first);
+        int probes = 1;
+        while (true) {
+            int pos = slot * stride;
+            long stored = table[pos];
+            if (stored == EMPTY) {
+                table[pos] = first;
+                if (stride == 2) table[pos + 1] = second;
+                size++;
+                recordProbes(probes);
+                return true;
+            }
+            if (stored == first && (stride == 1 || table[pos + 1] == second)) {
+                recordProbes(probes);
+                return false;
+            }
+            slot = (slot + 1) & mask;
+            probes++;
+        }
+    }
+
+    public boolean add(long fingerprint) {
+        return add(fingerprint, 0L);
+    }
+
+    public boolean contains(long fingerprint, long secondary) {
+        long first = fingerprint == EMPTY ? ZERO_REPLACEMENT : fingerprint;
+        long second = stride == 2 ? secondary : 0L;
+        int slot = indexOf(first);
+        int probes = 1;
+        while (true) {
+            int pos = slot * stride;
+            long stored = table[pos];
+            if (stored == EMPTY) {
+                recordProbes(probes);
+                return false;
+            }
+            if (stored == first && (stride == 1 || table[pos + 1] == second)) {
+                recordProbes(probes);
+                return true;
+            }
+            slot = (slot + 1) & mask;
+            probes++;
+        }
+    }
+
+    public boolean contains(long fingerprint) {
+        return contains(fingerprint, 0L);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /** Количество ячеек в таблице */
+    public int capacity() {
+        return mask + 1;
+    }
+
+    public double loadFactor() {
+        return (double) size / capacity();
+    }
+
+    /** Средняя длина пробы по всем операциям add/contains */
+    public double averageProbeLength() {
+        return lookups == 0 ? 0 : (double) totalProbes / lookups;
+    }
+
+    public int maxProbeLength() {
+        return maxProbeLength;
+    }
+
+    /** Объём памяти под таблицу в байтах */
+    public long memoryBytes() {
+        return (long) table.length * Long.BYTES;
+    }
+
+    public void clear() {
+        Arrays.fill(table, EMPTY);
+        size = 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d состояний, %d ячеек (%d бит), заполнение %.2f, проба: средняя %.2f, максимальная %d",
+                size, capacity(), stride * 64, loadFactor(), averageProbeLength(), maxProbeLength);
+    }
+
+    private void recordProbes(int probes) {
+        lookups++;
+        totalProbes += probes;
+        if (probes > maxProbeLength) maxProbeLength = probes;
+    }
+
+    // Фибоначчиево хэширование: старшие биты произведения равномерно распределены
+    private int indexOf(long fingerprint) {
+        return (int) ((fingerprint * 0x9E3779B97F4A7C15L) >>> shift);
+    }
+
+    private void allocate(int slots) {
+        table = new long[slots * stride];
+        mask = slots - 1;
+        shift = 64 - Integer.numberOfTrailingZeros(slots);
+        resizeThreshold = slots == maxSlots ? slots - 1 : (int) (slots * MAX_LOAD_FACTOR);
+    }
+
+    private void resize() {
+        if (capacity() >= maxSlots) {
+            throw new IllegalStateException("Закрытое множество переполнено: " + size + " состояний");
+        }
+        long[] old = table;
+        allocate(capacity() << 1);
+        for (int pos = 0; pos < old.length; pos += stride) {
+            long first = old[pos];
+            if (first == EMPTY) continue;
+            int slot = indexOf(first);
+            while (table[slot * stride] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot * stride] = first;
+            if (stride == 2) table[slot * stride + 1] = old[pos + 1];
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package search;
+
+import models.GameState;
+
+/**
+ * Оценка числа ходов, оставшихся до решения.
+ * Если оценка допустима (никогда не завышает), A* закрывает состояния
+ * при раскрытии и возвращает кратчайшее решение.
+ */
+public interface Heuristic {
+    /** Оценка для состояния, из которого решение недостижимо — такие состояния отбрасываются */
+    int UNSOLVABLE = Integer.MAX_VALUE;
+
+    /** Штрафная эвристика {@link GameState#calculateHeuristic()}: быстрая, но завышает */
+    Heuristic PENALTY = GameState::calculateHeuristic;
+
+    int estimate(GameState state);
+
+    /** true, если оценка не превышает настоящего числа ходов до решения */
+    default boolean isAdmissible() {
+        return false;
+    }
+}
@@ -0,0 +1,137 @@
+package search;
+
+import models.GameState;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Поиск с итеративным углублением по стоимости (IDA*).
+ * Память ограничена текущим путём и таблицей транспозиций фиксированного размера,
+ * поэтому поиск не падает с OutOfMemoryError на больших головоломках, а платит
+ * повторным раскрытием состояний. Использует ту же эвристику ({@link Heuristic})
+ * и тот же генератор ходов ({@link GameState#createChildren()}), что и A*;
+ * с допустимой эвристикой найденное решение кратчайшее.
+ */
+public class IdaStar {
+    private static final int FOUND = -1;
+    private static final int ABORTED = -2;
+
+    private final TranspositionTable table;
+    private final StateKey stateKey;
+    private final Heuristic heuristic;
+    private GameState solution;
+    private long statesExplored;
+    private int iterations;
+    private SearchBudget budget = SearchBudget.UNLIMITED;
+    private boolean budgetExhausted;
+
+    public IdaStar(int tableEntries, StateKey stateKey, Heuristic heuristic) {
+        this.table = new TranspositionTable(tableEntries);
+        this.stateKey = stateKey;
+        this.heuristic = heuristic;
+    }
+
+    public IdaStar(int tableEntries, StateKey stateKey) {
+        this(tableEntries, stateKey, Heuristic.PENALTY);
+    }
+
+    public IdaStar(int tableEntries) {
+        this(tableEntries, StateKey.POSITIONAL);
+    }
+
+    /** Запускает поиск и возвращает целевое состояние или null, если решения нет */
+    public GameState search(GameState start) {
+        return search(start, SearchBudget.UNLIMITED);
+    }
+
+    /** Поиск с ограничением; при исчерпании бюджета возвращает null и {@link #isBudgetExhausted()} == true */
+    public GameState search(GameState start, SearchBudget budget) {
+        solution = null;
+        statesExplored = 0;
+        iterations = 0;
+        this.budget = budget.start();
+        budgetExhausted = false;
+
+        int startEstimate = heuristic.estimate(start);
+        if (startEstimate == Heuristic.UNSOLVABLE) {
+            return null;
+        }
+        int threshold = startEstimate;
+        while (true) {
+            iterations++;
+            table.clear();
+            table.visit(stateKey.primary(start), 0);
+            int next = depthFirst(start, startEstimate, threshold);
+            if (next == FOUND) {
+                return solution;
+            }
+            if (next == ABORTED) {
+                budgetExhausted = true;
+                return null;
+            }
+            if (next == Integer.MAX_VALUE) {
+                // ни одно состояние не вышло за порог — пространство исчерпано
+                return null;
+            }
+            threshold = next;
+        }
+    }
+
+    /**
+     * Обход в глубину с отсечением по f = g + h.
+     * Возвращает FOUND, ABORTED (исчерпан бюджет) или наименьшее f, превысившее порог.
+     */
+    private int depthFirst(GameState state, int estimate, int threshold) {
+        int f = state.getDepth() + estimate;
+        if (f > threshold) {
+            return f;
+        }
+        statesExplored++;
+        if (budget.isExhausted(statesExplored)) {
+            return ABORTED;
+        }
+        if (state.isSolved()) {
+            solution = state;
+            return FOUND;
+        }
+
+        int childDepth = state.getDepth() + 1;
+        List<GameState> children = state.createChildren(candidate -> table.visit(stateKey.primary(candidate), childDepth));
+        // сначала более перспективные ходы — решение находится раньше в пределах итерации;
+        // оценка и номер ребёнка упакованы в long, чтобы эвристика считалась один раз
+        long[] order = new long[children.size()];
+        for (int k = 0; k < order.length; k++) {
+            order[k] = ((long) heuristic.estimate(children.get(k)) << 32) | k;
+        }
+        Arrays.sort(order);
+
+        int min = Integer.MAX_VALUE;
+        for (long entry : order) {
+            int childEstimate = (int) (entry >>> 32);
+            if (childEstimate == Heuristic.UNSOLVABLE) break;
+            int result = depthFirst(children.get((int) entry), childEstimate, threshold);
+            if (result == FOUND || result == ABORTED) {
+                return result;
+            }
+            if (result < min) min = result;
+        }
+        return min;
+    }
+
+    public long getStatesExplored() {
+        return statesExplored;
+    }
+
+    public boolean isBudgetExhausted() {
+        return budgetExhausted;
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    public TranspositionTable getTable() {
+        return table;
+    }
+}
@@ -0,0 +1,45 @@
+package search;
+
+/**
+ * Поток-демон, который раз в intervalMillis передаёт счётчики поиска наблюдателю.
+ * {@link #close()} останавливает опрос и вызывает {@link SearchListener#onFinish}.
+ */
+public class MetricsSampler implements AutoCloseable {
+    private final SearchMetrics metrics;
+    private final SearchListener listener;
+    private final Thread thread;
+    private volatile boolean closed;
+
+    public MetricsSampler(SearchMetrics metrics, SearchListener listener, long intervalMillis) {
+        if (intervalMillis < 1) {
+            throw new IllegalArgumentException("Интервал опроса должен быть положительным: " + intervalMillis);
+        }
+        this.metrics = metrics;
+        this.listener = listener;
+        this.thread = new Thread(() -> {
+            while (!closed) {
+                try {
+                    Thread.sleep(intervalMillis);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (!closed) listener.onSample(metrics);
+            }
+        }, "search-metrics");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        thread.interrupt();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        metrics.finish();
+        listener.onFinish(metrics);
+    }
+}
@@ -0,0 +1,227 @@
+package search;
+
+import models.GameState;
+import models.MutableState;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Параллельный A* с распределением состояний по хэшу (HDA*).
+ * Каждое состояние принадлежит одному потоку — владельцу, выбранному по отпечатку.
+ * У каждого потока своя открытая очередь и своё закрытое множество, поэтому
+ * они не требуют синхронизации. Дети, принадлежащие другим потокам,
+ * передаются через неблокирующие почтовые ящики (ConcurrentLinkedQueue).
+ * Найденное целевое состояние сохраняет цепочку родителей, так что путь
+ * восстанавливается так же, как в последовательном A*.
+ */
+public class ParallelAStar {
+    private static final long IDLE_PARK_NANOS = 50_000;
+
+    private final int threadCount;
+    private final int expectedStates;
+    private final boolean wideFingerprints;
+    private final StateKey stateKey;
+    private final Heuristic heuristic;
+
+    private Worker[] workers;
+    private final AtomicReference<GameState> solution = new AtomicReference<>();
+    // количество состояний в очередях и почтовых ящиках; 0 — пространство исчерпано
+    private final AtomicLong pending = new AtomicLong();
+    // первая ошибка в потоке поиска; остальные потоки останавливаются, ошибка пробрасывается из search()
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private volatile boolean finished;
+    private volatile boolean budgetExhausted;
+    private SearchBudget budget = SearchBudget.UNLIMITED;
+
+    public ParallelAStar(int threadCount, int expectedStates, boolean wideFingerprints, StateKey stateKey) {
+        this(threadCount, expectedStates, wideFingerprints, stateKey, Heuristic.PENALTY);
+    }
+
+    /**
+     * @param heuristic оценка f = g + h для очередей потоков; поиск останавливается на первом
+     *                  найденном решении, поэтому даже с допустимой эвристикой оно не обязательно кратчайшее
+     */
+    public ParallelAStar(int threadCount, int expectedStates, boolean wideFingerprints, StateKey stateKey,
+                         Heuristic heuristic) {
+        if (threadCount < 1) {
+            throw new IllegalArgumentException("Количество потоков должно быть положительным: " + threadCount);
+        }
+        this.threadCount = threadCount;
+        this.expectedStates = expectedStates;
+        this.wideFingerprints = wideFingerprints;
+        this.stateKey = stateKey;
+        this.heuristic = heuristic;
+    }
+
+    /** Запускает поиск и возвращает целевое состояние или null, если решения нет */
+    public GameState search(GameState start) {
+        return search(start, SearchBudget.UNLIMITED);
+    }
+
+    /**
+     * Поиск с ограничением. Лимит состояний проверяется каждым потоком по оценке
+     * (своё число раскрытий, умноженное на число потоков), без общего счётчика.
+     */
+    public GameState search(GameState start, SearchBudget budget) {
+        this.budget = budget.start();
+        budgetExhausted = false;
+        workers = new Worker[threadCount];
+        for (int i = 0; i < threadCount; i++) {
+            workers[i] = new Worker(i);
+        }
+        solution.set(null);
+        failure.set(null);
+        finished = false;
+        pending.set(1);
+        workers[ownerOf(stateKey.primary(start))].mailbox.add(start);
+
+        Thread[] threads = new Thread[threadCount];
+        for (int i = 0; i < threadCount; i++) {
+            threads[i] = new Thread(workers[i], "hda-worker-" + i);
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                // поиск оборван: отсутствие решения не доказано, как и при исчерпании бюджета
+                finished = true;
+                budgetExhausted = true;
+                Thread.currentThread().interrupt();
+                return null;
+            }
+        }
+        Throwable error = failure.get();
+        if (error instanceof RuntimeException runtime) throw runtime;
+        if (error instanceof Error fatal) throw fatal;
+        if (error != null) throw new IllegalStateException("Ошибка в потоке поиска", error);
+        return solution.get();
+    }
+
+    /** true, если поиск остановлен бюджетом или прерыванием вызывающего потока — null тогда не значит «решения нет» */
+    public boolean isBudgetExhausted() {
+        return budgetExhausted;
+    }
+
+    /** Суммарное число раскрытых состояний по всем потокам */
+    public long getStatesExplored() {
+        long total = 0;
+        for (Worker worker : workers) total += worker.expanded;
+        return total;
+    }
+
+    /** Суммарный размер закрытых множеств всех потоков */
+    public long getClosedSize() {
+        long total = 0;
+        for (Worker worker : workers) total += worker.closed.size();
+        return total;
+    }
+
+    private int ownerOf(long fingerprint) {
+        // старшие 32 бита отпечатка равномерно распределены по потокам
+        return (int) (((fingerprint >>> 32) * threadCount) >>> 32);
+    }
+
+    private class Worker implements Runnable {
+        private final int id;
+        private final BucketQueue<GameState> openSet = new BucketQueue<>();
+        private final FingerprintSet closed;
+        private final ConcurrentLinkedQueue<GameState> mailbox = new ConcurrentLinkedQueue<>();
+        private long expanded;
+
+        Worker(int id) {
+            this.id = id;
+            this.closed = new FingerprintSet(Math.max(16, expectedStates / threadCount), wideFingerprints);
+        }
+
+        @Override
+        public void run() {
+            try {
+                search();
+            } catch (Throwable e) {
+                // без этого остальные потоки ждали бы обнуления pending вечно
+                failure.compareAndSet(null, e);
+                finished = true;
+            }
+        }
+
+        private void search() {
+            while (!finished) {
+                drainMailbox();
+
+                GameState current = openSet.poll();
+                if (current == null) {
+                    if (pending.get() == 0) {
+                        finished = true;
+                    } else {
+                        LockSupport.parkNanos(IDLE_PARK_NANOS);
+                    }
+                    continue;
+                }
+                expanded++;
+                if (budget.isExhausted(expanded * threadCount)) {
+                    budgetExhausted = true;
+                    finished = true;
+                    return;
+                }
+
+                if (current.isSolved()) {
+                    solution.compareAndSet(null, current);
+                    finished = true;
+                    return;
+                }
+
+                // свои дубликаты отсекаются до копирования; чужие дети уходят владельцу
+                List<GameState> children = current.createChildren(this::acceptCandidate);
+                // сначала учитываем детей, затем снимаем родителя — счётчик не обнулится раньше времени
+                pending.addAndGet(children.size());
+                for (GameState child : children) {
+                    int owner = ownerOf(stateKey.primary(child));
+                    if (owner != id) {
+                        workers[owner].mailbox.add(child);
+                    } else if (!enqueue(child)) {
+                        pending.decrementAndGet();
+                    }
+                }
+                pending.decrementAndGet();
+            }
+        }
+
+        private boolean acceptCandidate(MutableState candidate) {
+            long fingerprint = stateKey.primary(candidate);
+            if (ownerOf(fingerprint) != id) return true;
+            long secondary = closed.isWide() ? stateKey.secondary(candidate) : 0L;
+            return closed.add(fingerprint, secondary);
+        }
+
+        private void drainMailbox() {
+            long duplicates = 0;
+            GameState incoming;
+            while ((incoming = mailbox.poll()) != null) {
+                if (!markVisited(incoming, stateKey.primary(incoming)) || !enqueue(incoming)) {
+                    duplicates++;
+                }
+            }
+            if (duplicates > 0) {
+                pending.addAndGet(-duplicates);
+            }
+        }
+
+        /** Ставит состояние в очередь; false — если из него решение недостижимо */
+        private boolean enqueue(GameState state) {
+            int estimate = heuristic.estimate(state);
+            if (estimate == Heuristic.UNSOLVABLE) return false;
+            openSet.add(state.getDepth() + estimate, state);
+            return true;
+        }
+
+        private boolean markVisited(GameState state, long fingerprint) {
+            long secondary = closed.isWide() ? stateKey.secondary(state) : 0L;
+            return closed.add(fingerprint, secondary);
+        }
+    }
+}
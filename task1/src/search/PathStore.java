@@ -0,0 +1,111 @@
+package search;
+
+import models.GameState;
+import models.MutableState;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Компактное хранилище путей поиска: для каждого состояния — номер родителя
+ * и ход from -> to в примитивных массивах. Сами состояния при этом не ссылаются
+ * на предков ({@link GameState#detach(int)}), так что в памяти остаются только
+ * состояния открытого списка и 8 байт на каждое порождённое состояние.
+ * Путь восстанавливается повторным применением ходов к начальному состоянию.
+ */
+public class PathStore {
+    private static final int ROOT = -1;
+
+    private int[] parents;
+    private short[] from;
+    private short[] to;
+    private int size;
+
+    public PathStore(int expectedStates) {
+        int capacity = Math.max(16, expectedStates);
+        parents = new int[capacity];
+        from = new short[capacity];
+        to = new short[capacity];
+    }
+
+    /** Начальное состояние, отвязанное от хранилища под своим номером */
+    public GameState addRoot(GameState start) {
+        if (start.getTubeCount() > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Слишком много пробирок для хранилища пути: " + start.getTubeCount());
+        }
+        return start.detach(add(ROOT, ROOT, ROOT));
+    }
+
+    /**
+     * Записывает ход, которым child получен из parent, и возвращает child без ссылки на родителя.
+     * Если child связан с parent цепочкой из нескольких ходов (свёрнутые вынужденные ходы),
+     * записываются все ходы цепочки.
+     */
+    public GameState add(GameState parent, GameState child) {
+        if (child.getParent() == parent) {
+            return child.detach(add(parent.getPathIndex(), child.getFromIndex(), child.getToIndex()));
+        }
+        List<GameState> chain = new ArrayList<>();
+        for (GameState step = child; step != parent; step = step.getParent()) {
+            if (step == null) {
+                throw new IllegalArgumentException("Состояние не является потомком родителя");
+            }
+            chain.add(step);
+        }
+        int index = parent.getPathIndex();
+        for (int k = chain.size() - 1; k >= 0; k--) {
+            index = add(index, chain.get(k).getFromIndex(), chain.get(k).getToIndex());
+        }
+        return child.detach(index);
+    }
+
+    private int add(int parent, int fromIndex, int toIndex) {
+        if (size == parents.length) {
+            int capacity = Math.multiplyExact(parents.length, 2);
+            parents = Arrays.copyOf(parents, capacity);
+            from = Arrays.copyOf(from, capacity);
+            to = Arrays.copyOf(to, capacity);
+        }
+        parents[size] = parent;
+        from[size] = (short) fromIndex;
+        to[size] = (short) toIndex;
+        return size++;
+    }
+
+    /**
+     * Путь от start к состоянию с номером pathIndex: ходы переигрываются от start,
+     * возвращённые состояния связаны цепочкой родителей, как при обычном поиске.
+     */
+    public List<GameState> replay(GameState start, int pathIndex) {
+        List<Integer> moves = new ArrayList<>();
+        for (int index = pathIndex; parents[index] != ROOT; index = parents[index]) {
+            moves.add(index);
+        }
+        Collections.reverse(moves);
+
+        List<GameState> path = new ArrayList<>(moves.size() + 1);
+        GameState current = start;
+        path.add(current);
+        for (int index : moves) {
+            MutableState work = current.toMutable();
+            if (work.applyMove(from[index], to[index]) == 0) {
+                throw new IllegalStateException("Сохранённый ход неприменим: " + from[index] + " -> " + to[index]);
+            }
+            current = work.freeze(current, from[index], to[index]);
+            path.add(current);
+        }
+        return path;
+    }
+
+    /** Число записанных состояний */
+    public int size() {
+        return size;
+    }
+
+    /** Объём массивов хранилища в байтах */
+    public long memoryBytes() {
+        return (long) parents.length * (Integer.BYTES + 2 * Short.BYTES);
+    }
+}
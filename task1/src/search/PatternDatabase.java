@@ -0,0 +1,512 @@
+package search;
+
+import models.GameState;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * База образцов (pattern database) для одного цвета.
+ * <p>
+ * Абстракция: капли выбранного цвета c различаются, все остальные цвета сливаются в X,
+ * порядок пробирок не важен. Переливание c стоит 1 и переносит ровно столько капель,
+ * сколько перенёс бы настоящий ход; переливание X бесплатно и может перенести любое
+ * число верхних X. Любой настоящий ход цвета k стоит 1 только в базе цвета k,
+ * поэтому сумма расстояний по всем цветам — допустимая и монотонная эвристика.
+ * <p>
+ * Расстояния до цели считаются один раз обратным 0-1 BFS и сохраняются в файл:
+ * заголовок, затем таблица открытой адресации (ключи long и расстояния byte).
+ * Файл отображается в память, поиск значения — O(1) без чтения всей таблицы в кучу.
+ * База зависит только от числа пробирок, объёма и числа капель (своих и чужих),
+ * поэтому в обычной головоломке одна база обслуживает все цвета.
+ */
+public final class PatternDatabase {
+    /** Состояние не сводится к цели — настоящее состояние тоже нерешаемо */
+    public static final int UNREACHABLE = -1;
+
+    private static final int MAGIC = 0x50444231;
+    private static final int HEADER_BYTES = 32;
+    private static final int MAX_STATES = 1 << 24;
+    // база строится вне карты: второй поток с тем же ключом ждёт future, остальные ключи не блокируются
+    private static final ConcurrentHashMap<String, CompletableFuture<PatternDatabase>> CACHE = new ConcurrentHashMap<>();
+
+    private final int tubeCount;
+    private final int capacity;
+    private final int colorBalls;
+    private final int otherBalls;
+    private final Layout layout;
+    private final int size;
+    private final int mask;
+    private final int shift;
+    private final LongBuffer keys;
+    private final ByteBuffer distances;
+
+    private PatternDatabase(Layout layout, int colorBalls, int otherBalls, MappedByteBuffer file) {
+        this.layout = layout;
+        this.tubeCount = layout.tubeCount;
+        this.capacity = layout.capacity;
+        this.colorBalls = colorBalls;
+        this.otherBalls = otherBalls;
+        if (file.getInt(0) != MAGIC || file.getInt(4) != tubeCount || file.getInt(8) != capacity
+                || file.getInt(12) != colorBalls || file.getInt(16) != otherBalls) {
+            throw new IllegalStateException("Файл базы образцов не соответствует размеру головоломки");
+        }
+        int slots = file.getInt(20);
+        this.size = file.getInt(24);
+        this.mask = slots - 1;
+        this.shift = 64 - Integer.numberOfTrailingZeros(slots);
+        this.keys = file.slice(HEADER_BYTES, slots * Long.BYTES).asLongBuffer();
+        this.distances = file.slice(HEADER_BYTES + slots * Long.BYTES, slots);
+    }
+
+    /**
+     * Проверяет, помещается ли абстрактное состояние головоломки такого размера в 64-битный ключ
+     * и не превышает ли число абстрактных состояний предел таблицы (тогда сборка не прервётся)
+     */
+    public static boolean isSupported(int tubeCount, int capacity, int colorBalls, int otherBalls) {
+        return colorBalls <= capacity && otherBalls <= (tubeCount - 1) * capacity
+                && Layout.bits(tubeCount, capacity, colorBalls) < Long.SIZE
+                && countStates(tubeCount, capacity, colorBalls, otherBalls) < MAX_STATES;
+    }
+
+    /**
+     * База для заданного размера: из кэша процесса, из файла в directory
+     * или построенная заново (и сохранённая туда же).
+     */
+    public static PatternDatabase load(Path directory, int tubeCount, int capacity, int colorBalls, int otherBalls) {
+        if (otherBalls > (tubeCount - 1) * capacity) {
+            throw new IllegalArgumentException("Капли не помещаются в пробирки");
+        }
+        if (!isSupported(tubeCount, capacity, colorBalls, otherBalls)) {
+            throw new IllegalArgumentException("Головоломка слишком велика для базы образцов: "
+                    + tubeCount + " пробирок по " + capacity);
+        }
+        String name = String.format("pdb-n%d-v%d-c%d-x%d.bin", tubeCount, capacity, colorBalls, otherBalls);
+        Path file = directory.resolve(name);
+        String key = file.toAbsolutePath().toString();
+        CompletableFuture<PatternDatabase> created = new CompletableFuture<>();
+        CompletableFuture<PatternDatabase> existing = CACHE.putIfAbsent(key, created);
+        if (existing != null) {
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                // сборка в другом потоке не удалась — та же ошибка и здесь
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+        try {
+            PatternDatabase database = open(directory, file, new Layout(tubeCount, capacity), colorBalls, otherBalls);
+            created.complete(database);
+            return database;
+        } catch (RuntimeException | Error e) {
+            // неудачная сборка не кэшируется: следующий вызов попробует снова
+            CACHE.remove(key, created);
+            created.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private static PatternDatabase open(Path directory, Path file, Layout layout, int colorBalls, int otherBalls) {
+        try {
+            if (!Files.exists(file)) {
+                Files.createDirectories(directory);
+                new Builder(layout, colorBalls, otherBalls).build().write(file);
+            }
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                return new PatternDatabase(layout, colorBalls, otherBalls,
+                        channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось загрузить базу образцов " + file, e);
+        }
+    }
+
+    /**
+     * Верхняя оценка числа абстрактных состояний (насыщается на {@link #MAX_STATES}):
+     * мультимножества из tubeCount пробирок-кодов с ровно colorBalls каплями c и otherBalls X.
+     * Коды группируются по числу капель c и X в пробирке: из g кодов одной группы
+     * m пробирок выбираются C(g + m - 1, m) способами.
+     */
+    static long countStates(int tubeCount, int capacity, int colorBalls, int otherBalls) {
+        // ways[t][c][x] — число мультимножеств из t пробирок с c каплями c и x каплями X
+        long[][][] ways = new long[tubeCount + 1][colorBalls + 1][otherBalls + 1];
+        ways[0][0][0] = 1;
+        for (int c = 0; c <= Math.min(colorBalls, capacity); c++) {
+            for (int x = 0; c + x <= capacity && x <= otherBalls; x++) {
+                long codes = binomial(c + x, c);
+                long[][][] next = new long[tubeCount + 1][colorBalls + 1][otherBalls + 1];
+                for (int t = 0; t <= tubeCount; t++) {
+                    for (int cc = 0; cc <= colorBalls; cc++) {
+                        for (int xx = 0; xx <= otherBalls; xx++) {
+                            long sum = 0;
+                            long choices = 1;
+                            for (int m = 0; m <= t && m * c <= cc && m * x <= xx; m++) {
+                                if (m > 0) {
+                                    choices = Math.min(MAX_STATES, choices * (codes + m - 1) / m);
+                                }
+                                long base = ways[t - m][cc - m * c][xx - m * x];
+                                if (base > 0) {
+                                    sum = Math.min(MAX_STATES, sum + Math.min(MAX_STATES, base * choices));
+                                }
+                            }
+                            next[t][cc][xx] = sum;
+                        }
+                    }
+                }
+                ways = next;
+            }
+        }
+        return ways[tubeCount][colorBalls][otherBalls];
+    }
+
+    private static long binomial(int n, int k) {
+        long result = 1;
+        for (int i = 1; i <= k; i++) {
+            result = result * (n - k + i) / i;
+        }
+        return result;
+    }
+
+    /** Минимальное число переливаний цвета color до цели или {@link #UNREACHABLE} */
+    public int distance(GameState state, int color) {
+        return distance(layout.key(state, color));
+    }
+
+    int distance(long key) {
+        int slot = (int) ((key * 0x9E3779B97F4A7C15L) >>> shift);
+        while (true) {
+            long stored = keys.get(slot);
+            if (stored == key) return distances.get(slot);
+            if (stored == 0L) return UNREACHABLE;
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /** Количество абстрактных состояний в базе */
+    public int size() {
+        return size;
+    }
+
+    public int getTubeCount() {
+        return tubeCount;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getColorBalls() {
+        return colorBalls;
+    }
+
+    public int getOtherBalls() {
+        return otherBalls;
+    }
+
+    /**
+     * Упаковка абстрактного состояния в long.
+     * Пробирка кодируется как (1 << длина) | маска капель c (бит 0 — дно), пустая — 1.
+     * Пробирки без c хранятся гистограммой по длине, пробирки с c — отсортированным
+     * списком кодов; так ключ не зависит от порядка пробирок и 0 не бывает ключом.
+     */
+    static final class Layout {
+        final int tubeCount;
+        final int capacity;
+        private final int countBits;
+        private final int codeBits;
+        private final int listShift;
+
+        Layout(int tubeCount, int capacity) {
+            this.tubeCount = tubeCount;
+            this.capacity = capacity;
+            this.countBits = 32 - Integer.numberOfLeadingZeros(tubeCount);
+            this.codeBits = capacity + 1;
+            this.listShift = (capacity + 1) * countBits;
+        }
+
+        static int bits(int tubeCount, int capacity, int colorBalls) {
+            return (capacity + 1) * (32 - Integer.numberOfLeadingZeros(tubeCount))
+                    + Math.min(colorBalls, tubeCount) * (capacity + 1);
+        }
+
+        long key(GameState state, int color) {
+            long histogram = 0;
+            long list = 0;
+            int listed = 0;
+            for (int t = 0; t < tubeCount; t++) {
+                int length = state.tubeSize(t);
+                int colorMask = 0;
+                for (int slot = 0; slot < length; slot++) {
+                    if (state.colorAt(t, slot) == color) colorMask |= 1 << slot;
+                }
+                if (colorMask == 0) {
+                    histogram += 1L << (length * countBits);
+                } else {
+                    list = insert(list, listed++, (1 << length) | colorMask);
+                }
+            }
+            return histogram | (list << listShift);
+        }
+
+        long key(int[] codes) {
+            long histogram = 0;
+            long list = 0;
+            int listed = 0;
+            for (int code : codes) {
+                int length = length(code);
+                if (code == 1 << length) {
+                    histogram += 1L << (length * countBits);
+                } else {
+                    list = insert(list, listed++, code);
+                }
+            }
+            return histogram | (list << listShift);
+        }
+
+        /** Коды пробирок по ключу; одинаковые коды идут подряд */
+        void decode(long key, int[] codes) {
+            int t = 0;
+            long countMask = (1L << countBits) - 1;
+            for (int length = 0; length <= capacity; length++) {
+                int count = (int) ((key >>> (length * countBits)) & countMask);
+                for (int k = 0; k < count; k++) codes[t++] = 1 << length;
+            }
+            long list = key >>> listShift;
+            long codeMask = (1L << codeBits) - 1;
+            while (list != 0) {
+                codes[t++] = (int) (list & codeMask);
+                list >>>= codeBits;
+            }
+        }
+
+        // вставка в отсортированный по возрастанию список из count кодов, упакованный в long
+        private long insert(long list, int count, int code) {
+            int pos = 0;
+            while (pos < count && ((list >>> (pos * codeBits)) & ((1L << codeBits) - 1)) < code) pos++;
+            long low = list & ((1L << (pos * codeBits)) - 1);
+            long high = list >>> (pos * codeBits);
+            return low | ((long) code << (pos * codeBits)) | (high << ((pos + 1) * codeBits));
+        }
+    }
+
+    private static int length(int code) {
+        return 31 - Integer.numberOfLeadingZeros(code);
+    }
+
+    /** Верхняя капля — цвет c (иначе X или пусто) */
+    private static boolean topIsColor(int code) {
+        int length = length(code);
+        return length > 0 && (code >>> (length - 1) & 1) == 1;
+    }
+
+    /** Длина верхней группы одинаковых капель */
+    private static int topRun(int code) {
+        int length = length(code);
+        if (length == 0) return 0;
+        int top = code >>> (length - 1) & 1;
+        int run = 1;
+        while (run < length && (code >>> (length - 1 - run) & 1) == top) run++;
+        return run;
+    }
+
+    private static int pop(int code, int count) {
+        int length = length(code) - count;
+        return (1 << length) | (code & ((1 << length) - 1));
+    }
+
+    private static int push(int code, int count, boolean color) {
+        int length = length(code);
+        int colorMask = code & ((1 << length) - 1);
+        if (color) colorMask |= ((1 << count) - 1) << length;
+        return (1 << (length + count)) | colorMask;
+    }
+
+    /** Обратный 0-1 BFS от всех абстрактных целей */
+    private static final class Builder {
+        private final Layout layout;
+        private final int colorBalls;
+        private final int otherBalls;
+        private final int[] codes;
+
+        private long[] keys = new long[1 << 12];
+        private byte[] distances = new byte[1 << 12];
+        private int size;
+        private int shift = 64 - 12;
+
+        private long[] current = new long[1 << 10];
+        private int currentSize;
+        private long[] next = new long[1 << 10];
+        private int nextSize;
+
+        Builder(Layout layout, int colorBalls, int otherBalls) {
+            this.layout = layout;
+            this.colorBalls = colorBalls;
+            this.otherBalls = otherBalls;
+            this.codes = new int[layout.tubeCount];
+        }
+
+        Builder build() {
+            // цель: все капли c в одной пробирке без X, остальные пробирки только с X
+            codes[0] = (1 << colorBalls) | ((1 << colorBalls) - 1);
+            addGoals(1, 0, otherBalls);
+
+            for (int distance = 0; currentSize > 0; distance++) {
+                if (distance > Byte.MAX_VALUE) {
+                    throw new IllegalStateException("Расстояние в базе образцов не помещается в байт");
+                }
+                for (int i = 0; i < currentSize; i++) {
+                    long key = current[i];
+                    if (get(key) != distance) continue;
+                    expand(key, distance);
+                }
+                long[] swap = current;
+                current = next;
+                currentSize = nextSize;
+                next = swap;
+                nextSize = 0;
+            }
+            return this;
+        }
+
+        // раскладывает оставшиеся X по пробиркам с неубывающей длиной
+        private void addGoals(int tube, int minLength, int remaining) {
+            if (tube == codes.length) {
+                if (remaining == 0) reach(layout.key(codes), 0, 0);
+                return;
+            }
+            for (int length = minLength; length <= layout.capacity && length <= remaining; length++) {
+                codes[tube] = 1 << length;
+                addGoals(tube + 1, length, remaining - length);
+            }
+        }
+
+        /** Перебирает предшественников: состояния, из которых один ход ведёт в key */
+        private void expand(long key, int distance) {
+            layout.decode(key, codes);
+            int capacity = layout.capacity;
+            for (int j = 0; j < codes.length; j++) {
+                int target = codes[j];
+                if (j > 0 && codes[j - 1] == target) continue;
+                int run = topRun(target);
+                if (run == 0) continue;
+                boolean color = topIsColor(target);
+                boolean onlyRun = run == length(target);
+                for (int count = 1; count <= run; count++) {
+                    // до хода верх пробирки-приёмника был того же цвета или она была пуста
+                    if (count == run && !onlyRun) continue;
+                    int restored = pop(target, count);
+                    for (int i = 0; i < codes.length; i++) {
+                        if (i == j || isRepeated(i, j)) continue;
+                        int source = codes[i];
+                        if (capacity - length(source) < count) continue;
+                        // ход c переливает максимум: либо вся верхняя группа, либо до заполнения приёмника
+                        if (color && topIsColor(source) && length(target) != capacity) continue;
+                        codes[j] = restored;
+                        codes[i] = push(source, count, color);
+                        reach(layout.key(codes), distance + (color ? 1 : 0), distance);
+                        codes[i] = source;
+                        codes[j] = target;
+                    }
+                }
+            }
+        }
+
+        private boolean isRepeated(int i, int skip) {
+            int previous = i - 1 == skip ? i - 2 : i - 1;
+            return previous >= 0 && codes[previous] == codes[i];
+        }
+
+        private void reach(long key, int distance, int currentDistance) {
+            int known = get(key);
+            if (known != UNREACHABLE && known <= distance) return;
+            put(key, distance);
+            if (distance == currentDistance) {
+                current = append(current, currentSize++, key);
+            } else {
+                next = append(next, nextSize++, key);
+            }
+        }
+
+        private static long[] append(long[] array, int index, long value) {
+            if (index == array.length) array = Arrays.copyOf(array, array.length * 2);
+            array[index] = value;
+            return array;
+        }
+
+        private int get(long key) {
+            int mask = keys.length - 1;
+            int slot = (int) ((key * 0x9E3779B97F4A7C15L) >>> shift);
+            while (true) {
+                long stored = keys[slot];
+                if (stored == key) return distances[slot];
+                if (stored == 0L) return UNREACHABLE;
+                slot = (slot + 1) & mask;
+            }
+        }
+
+        private void put(long key, int distance) {
+            if (size * 2 >= keys.length) grow();
+            int mask = keys.length - 1;
+            int slot = (int) ((key * 0x9E3779B97F4A7C15L) >>> shift);
+            while (keys[slot] != 0L && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            if (keys[slot] == 0L) size++;
+            keys[slot] = key;
+            distances[slot] = (byte) distance;
+        }
+
+        private void grow() {
+            if (size >= MAX_STATES) {
+                throw new IllegalStateException("База образцов превысила " + MAX_STATES + " состояний");
+            }
+            long[] oldKeys = keys;
+            byte[] oldDistances = distances;
+            keys = new long[oldKeys.length * 2];
+            distances = new byte[oldKeys.length * 2];
+            shift--;
+            int mask = keys.length - 1;
+            for (int pos = 0; pos < oldKeys.length; pos++) {
+                if (oldKeys[pos] == 0L) continue;
+                int slot = (int) ((oldKeys[pos] * 0x9E3779B97F4A7C15L) >>> shift);
+                while (keys[slot] != 0L) slot = (slot + 1) & mask;
+                keys[slot] = oldKeys[pos];
+                distances[slot] = oldDistances[pos];
+            }
+        }
+
+        /** Пишет таблицу во временный файл и атомарно переименовывает его */
+        void write(Path file) throws IOException {
+            Path temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+                header.putInt(MAGIC).putInt(layout.tubeCount).putInt(layout.capacity)
+                        .putInt(colorBalls).putInt(otherBalls).putInt(keys.length).putInt(size).rewind();
+                channel.write(header);
+                ByteBuffer chunk = ByteBuffer.allocate(1 << 16);
+                for (long key : keys) {
+                    if (!chunk.hasRemaining()) {
+                        channel.write(chunk.flip());
+                        chunk.clear();
+                    }
+                    chunk.putLong(key);
+                }
+                channel.write(chunk.flip());
+                channel.write(ByteBuffer.wrap(distances));
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package search;
+
+import models.GameState;
+
+import java.nio.file.Path;
+
+/**
+ * Допустимая эвристика на базах образцов: сумма по цветам минимального числа
+ * переливаний этого цвета (см. {@link PatternDatabase}). Число капель каждого цвета
+ * не меняется во время поиска, поэтому базы выбираются один раз по начальному состоянию.
+ */
+public class PatternDatabaseHeuristic implements Heuristic {
+    private final int[] colors;
+    private final PatternDatabase[] databases;
+
+    /**
+     * Загружает (при необходимости строит) базы для всех цветов начального состояния.
+     *
+     * @param directory каталог файлов баз; построенные базы сохраняются туда же
+     */
+    public PatternDatabaseHeuristic(GameState initial, Path directory) {
+        int[] counts = countColors(initial);
+        int total = 0;
+        int distinct = 0;
+        for (int count : counts) {
+            total += count;
+            if (count > 0) distinct++;
+        }
+        this.colors = new int[distinct];
+        this.databases = new PatternDatabase[distinct];
+        int k = 0;
+        for (int color = 1; color < counts.length; color++) {
+            if (counts[color] == 0) continue;
+            colors[k] = color;
+            databases[k] = PatternDatabase.load(directory, initial.getTubeCount(), initial.getCapacity(),
+                    counts[color], total - counts[color]);
+            k++;
+        }
+    }
+
+    /** Можно ли построить базы для такой головоломки (размер ключа и число абстрактных состояний) */
+    public static boolean isSupported(GameState state) {
+        int[] counts = countColors(state);
+        int total = 0;
+        for (int count : counts) {
+            total += count;
+        }
+        for (int count : counts) {
+            if (count > 0 && !PatternDatabase.isSupported(state.getTubeCount(), state.getCapacity(),
+                    count, total - count)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int estimate(GameState state) {
+        int sum = 0;
+        for (int k = 0; k < colors.length; k++) {
+            int distance = databases[k].distance(state, colors[k]);
+            if (distance == PatternDatabase.UNREACHABLE) return UNSOLVABLE;
+            sum += distance;
+        }
+        return sum;
+    }
+
+    @Override
+    public boolean isAdmissible() {
+        return true;
+    }
+
+    private static int[] countColors(GameState state) {
+        int[] counts = new int[Byte.MAX_VALUE + 1];
+        for (int t = 0; t < state.getTubeCount(); t++) {
+            for (int slot = 0; slot < state.tubeSize(t); slot++) {
+                counts[state.colorAt(t, slot)]++;
+            }
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,55 @@
+package search;
+
+/**
+ * Ограничение поиска по числу раскрытых состояний и по времени.
+ * Время проверяется не на каждом состоянии, а раз в {@link #TIME_CHECK_INTERVAL}
+ * раскрытий, чтобы System.nanoTime() не попадал в горячий цикл.
+ */
+public class SearchBudget {
+    public static final SearchBudget UNLIMITED = new SearchBudget(0, 0);
+
+    private static final int TIME_CHECK_INTERVAL = 256;
+
+    private final long maxStates;
+    private final long timeoutMillis;
+    private final long deadlineNanos;
+
+    /**
+     * @param maxStates     максимум раскрытых состояний (0 — без ограничения)
+     * @param timeoutMillis максимальное время поиска в миллисекундах (0 — без ограничения)
+     */
+    public SearchBudget(long maxStates, long timeoutMillis) {
+        this(maxStates, timeoutMillis, 0);
+    }
+
+    private SearchBudget(long maxStates, long timeoutMillis, long deadlineNanos) {
+        if (maxStates < 0 || timeoutMillis < 0) {
+            throw new IllegalArgumentException("Ограничения поиска не могут быть отрицательными");
+        }
+        this.maxStates = maxStates;
+        this.timeoutMillis = timeoutMillis;
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    /** Копия бюджета, отсчёт времени которой начинается сейчас */
+    public SearchBudget start() {
+        if (timeoutMillis == 0) return this;
+        return new SearchBudget(maxStates, timeoutMillis, System.nanoTime() + timeoutMillis * 1_000_000);
+    }
+
+    /** true, если после statesExplored раскрытий поиск нужно прекратить */
+    public boolean isExhausted(long statesExplored) {
+        if (maxStates > 0 && statesExplored >= maxStates) return true;
+        return deadlineNanos != 0
+                && statesExplored % TIME_CHECK_INTERVAL == 0
+                && System.nanoTime() - deadlineNanos >= 0;
+    }
+
+    public long getMaxStates() {
+        return maxStates;
+    }
+
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+}
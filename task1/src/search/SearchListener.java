@@ -0,0 +1,25 @@
+package search;
+
+import java.io.PrintStream;
+
+/**
+ * Наблюдатель за ходом поиска. Вызывается не из потока поиска, а из отдельного
+ * потока {@link MetricsSampler} с заданным интервалом и один раз по окончании.
+ */
+@FunctionalInterface
+public interface SearchListener {
+    /** Ничего не делает; с ним поиск не публикует счётчики и не запускает поток опроса */
+    SearchListener NONE = metrics -> {
+    };
+
+    void onSample(SearchMetrics metrics);
+
+    default void onFinish(SearchMetrics metrics) {
+        onSample(metrics);
+    }
+
+    /** Печатает счётчики в out (для интерактивного режима) */
+    static SearchListener console(PrintStream out) {
+        return metrics -> out.println((metrics.isFinished() ? "Итог поиска: " : "Поиск: ") + metrics);
+    }
+}
@@ -0,0 +1,84 @@
+package search;
+
+/**
+ * Счётчики хода поиска, которые читаются из другого потока.
+ * Поиск ведёт счётчики в локальных переменных и раз в {@link #PUBLISH_INTERVAL}
+ * раскрытий переносит их сюда, поэтому горячий цикл не пишет в общую память
+ * и не форматирует строк. Значения полей публикуются по отдельности —
+ * снимок согласован с точностью до одного интервала публикации.
+ */
+public class SearchMetrics {
+    /** Раз во сколько раскрытий поиск публикует счётчики (степень двойки) */
+    public static final int PUBLISH_INTERVAL = 1024;
+
+    private final long startNanos = System.nanoTime();
+    private volatile long expanded;
+    private volatile long generated;
+    private volatile long duplicates;
+    private volatile int openSize;
+    private volatile int closedSize;
+    private volatile int maxDepth;
+    private volatile long elapsedNanos = -1;
+
+    public void publish(long expanded, long generated, long duplicates, int openSize, int closedSize, int maxDepth) {
+        this.expanded = expanded;
+        this.generated = generated;
+        this.duplicates = duplicates;
+        this.openSize = openSize;
+        this.closedSize = closedSize;
+        this.maxDepth = maxDepth;
+    }
+
+    /** Фиксирует время поиска; после этого скорость считается по полному времени */
+    public void finish() {
+        elapsedNanos = System.nanoTime() - startNanos;
+    }
+
+    public long getExpanded() {
+        return expanded;
+    }
+
+    /** Принятые дети (прошедшие закрытое множество) */
+    public long getGenerated() {
+        return generated;
+    }
+
+    /** Дети, отсечённые как уже встречавшиеся */
+    public long getDuplicates() {
+        return duplicates;
+    }
+
+    public int getOpenSize() {
+        return openSize;
+    }
+
+    public int getClosedSize() {
+        return closedSize;
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    public boolean isFinished() {
+        return elapsedNanos >= 0;
+    }
+
+    public long getElapsedMillis() {
+        long elapsed = elapsedNanos;
+        return (elapsed >= 0 ? elapsed : System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    /** Раскрытий в секунду с начала поиска */
+    public double statesPerSecond() {
+        long elapsed = elapsedNanos >= 0 ? elapsedNanos : System.nanoTime() - startNanos;
+        return elapsed == 0 ? 0 : expanded * 1e9 / elapsed;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("раскрыто: %d, порождено: %d, дубликатов: %d, очередь: %d, закрыто: %d, "
+                        + "глубина: %d, %.0f сост/с, %d мс",
+                expanded, generated, duplicates, openSize, closedSize, maxDepth, statesPerSecond(), getElapsedMillis());
+    }
+}
@@ -0,0 +1,338 @@
+package search;
+
+import models.GameState;
+import models.MutableState;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Кэш решений, сохраняемый между запусками.
+ * <p>
+ * Ключ — каноническая форма головоломки: пробирки упорядочены, а цвета перенумерованы
+ * по первому появлению, поэтому головоломка с переставленными пробирками или
+ * другими номерами цветов находит то же решение. Ходы хранятся в номерах пробирок
+ * канонической формы и при выдаче переводятся в номера пробирок вызывающего.
+ * Ключ сравнивается целиком, так что коллизия отпечатка не может вернуть чужое решение;
+ * если пробирки неразличимы ранжированием ({@link #canonicalize}), порядок между ними
+ * не всегда однозначен, и такая перестановка может дать промах — но не неверный ответ.
+ * <p>
+ * Файл только дописывается: заголовок, затем записи {длина ключа, ключ, флаги, число ходов
+ * (-1 — решения нет), ходы from/to}. При открытии файл читается целиком в индекс
+ * в памяти; недописанная последняя запись (например, после аварийного завершения) отрезается.
+ * Более поздняя запись для того же ключа заменяет раннюю. Методы потокобезопасны.
+ */
+public class SolutionCache implements Closeable {
+    private static final int MAGIC = 0x57534331;
+    private static final int NO_SOLUTION = -1;
+    private static final int FLAG_OPTIMAL = 1;
+    // ключ начинается с числа пробирок (2 байта) и объёма (1 байт)
+    private static final int HEADER_BYTES = 3;
+    // сколько раз упорядочить пробирки и перенумеровать цвета, пока порядок не перестанет меняться
+    private static final int MAX_REFINEMENTS = 4;
+
+    private final Map<Long, Entry> index = new HashMap<>();
+    private final DataOutputStream out;
+    private long hits;
+    private long misses;
+
+    /** Найденное в кэше решение: path == null — решения нет */
+    public record Hit(List<GameState> path, boolean optimal) {
+    }
+
+    private record Entry(byte[] key, boolean optimal, short[] moves) {
+    }
+
+    /** Открывает кэш в файле file (создаёт его, если нет) и загружает индекс */
+    public SolutionCache(Path file) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        long valid = load(file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            if (channel.size() > valid) channel.truncate(valid);
+        }
+        out = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(file, StandardOpenOption.APPEND)));
+        if (valid == 0) {
+            out.writeInt(MAGIC);
+            out.flush();
+        }
+    }
+
+    /**
+     * Решение для puzzle или null, если его нет в кэше.
+     * requireOptimal — принимать только кратчайшие решения (доказанное отсутствие решения подходит всегда).
+     */
+    public synchronized Hit lookup(GameState puzzle, boolean requireOptimal) {
+        Canonical canonical = canonicalize(puzzle);
+        Entry entry = index.get(fingerprint(canonical.key));
+        if (entry == null || !Arrays.equals(entry.key, canonical.key) || (requireOptimal && !entry.optimal)) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return new Hit(entry.moves == null ? null : replay(puzzle, entry.moves, canonical.order), entry.optimal);
+    }
+
+    /**
+     * Запоминает результат поиска: path — решение от puzzle (path.get(0) — сам puzzle)
+     * или null, если доказано, что решения нет. Кратчайшее решение не заменяется некратчайшим.
+     */
+    public synchronized void put(GameState puzzle, List<GameState> path, boolean optimal) {
+        if (puzzle.getTubeCount() > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Слишком много пробирок для кэша решений: " + puzzle.getTubeCount());
+        }
+        Canonical canonical = canonicalize(puzzle);
+        long fingerprint = fingerprint(canonical.key);
+        Entry existing = index.get(fingerprint);
+        boolean proven = path == null || optimal;
+        if (existing != null && Arrays.equals(existing.key, canonical.key) && (existing.optimal || !proven)) {
+            return;
+        }
+
+        short[] moves = null;
+        if (path != null) {
+            int[] position = new int[canonical.order.length];
+            for (int k = 0; k < canonical.order.length; k++) {
+                position[canonical.order[k]] = k;
+            }
+            moves = new short[2 * (path.size() - 1)];
+            for (int i = 1; i < path.size(); i++) {
+                moves[2 * (i - 1)] = (short) position[path.get(i).getFromIndex()];
+                moves[2 * (i - 1) + 1] = (short) position[path.get(i).getToIndex()];
+            }
+        }
+        Entry entry = new Entry(canonical.key, proven, moves);
+        try {
+            write(entry);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось дописать кэш решений", e);
+        }
+        index.put(fingerprint, entry);
+    }
+
+    public synchronized int size() {
+        return index.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        out.close();
+    }
+
+    /** Читает записи в индекс; возвращает длину корректной части файла */
+    private long load(Path file) throws IOException {
+        if (!Files.exists(file) || Files.size(file) < Integer.BYTES) return 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Файл не является кэшем решений: " + file);
+            }
+            long valid = Integer.BYTES;
+            while (true) {
+                try {
+                    byte[] key = new byte[in.readInt()];
+                    in.readFully(key);
+                    boolean optimal = (in.readByte() & FLAG_OPTIMAL) != 0;
+                    int moveCount = in.readInt();
+                    short[] moves = null;
+                    if (moveCount != NO_SOLUTION) {
+                        moves = new short[2 * moveCount];
+                        for (int i = 0; i < moves.length; i++) moves[i] = in.readShort();
+                    }
+                    index.put(fingerprint(key), new Entry(key, optimal, moves));
+                    valid += recordSize(key.length, moveCount);
+                } catch (EOFException e) {
+                    return valid;
+                }
+            }
+        }
+    }
+
+    private void write(Entry entry) throws IOException {
+        out.writeInt(entry.key.length);
+        out.write(entry.key);
+        out.writeByte(entry.optimal ? FLAG_OPTIMAL : 0);
+        out.writeInt(entry.moves == null ? NO_SOLUTION : entry.moves.length / 2);
+        if (entry.moves != null) {
+            for (short move : entry.moves) out.writeShort(move);
+        }
+        out.flush();
+    }
+
+    private static long recordSize(int keyLength, int moveCount) {
+        return Integer.BYTES + keyLength + 1 + Integer.BYTES + (moveCount == NO_SOLUTION ? 0 : 4L * moveCount);
+    }
+
+    /** Ходы канонической формы в номерах пробирок puzzle, применённые к нему */
+    private static List<GameState> replay(GameState puzzle, short[] moves, int[] order) {
+        List<GameState> path = new ArrayList<>(moves.length / 2 + 1);
+        GameState current = puzzle;
+        path.add(current);
+        for (int i = 0; i < moves.length; i += 2) {
+            int from = order[moves[i]];
+            int to = order[moves[i + 1]];
+            MutableState work = current.toMutable();
+            if (work.applyMove(from, to) == 0) {
+                throw new IllegalStateException("Ход из кэша неприменим: " + from + " -> " + to);
+            }
+            current = work.freeze(current, from, to);
+            path.add(current);
+        }
+        return path;
+    }
+
+    /** Каноническая форма: key — байты формы, order[k] — номер пробирки puzzle на позиции k */
+    private record Canonical(byte[] key, int[] order) {
+    }
+
+    /**
+     * Пробирки сначала ранжируются признаками, не зависящими от номеров цветов и порядка
+     * пробирок: ранг пробирки — по размеру, узору повторов и рангам её цветов снизу вверх,
+     * ранг цвета — по тому, в пробирках каких рангов и на каких местах он лежит; ранги
+     * уточняются друг через друга, пока число различных рангов пробирок растёт. Затем цвета
+     * нумеруются по первому появлению снизу вверх, а пробирки переупорядочиваются
+     * по перенумерованному содержимому — пока порядок не перестанет меняться.
+     * Неразличимые ранжированием пробирки остаются в исходном порядке.
+     */
+    static Canonical canonicalize(GameState puzzle) {
+        int n = puzzle.getTubeCount();
+        int[] tubeRanks = rankTubes(puzzle);
+        Integer[] order = new Integer[n];
+        for (int t = 0; t < n; t++) order[t] = t;
+        Arrays.sort(order, (a, b) -> Integer.compare(tubeRanks[a], tubeRanks[b]));
+
+        byte[][] contents = relabel(puzzle, order);
+        for (int round = 0; round < MAX_REFINEMENTS; round++) {
+            Integer[] refined = order.clone();
+            byte[][] current = contents;
+            Arrays.sort(refined, (a, b) -> Arrays.compare(current[a], current[b]));
+            if (Arrays.equals(refined, order)) break;
+            order = refined;
+            contents = relabel(puzzle, order);
+        }
+
+        int capacity = puzzle.getCapacity();
+        byte[] key = new byte[HEADER_BYTES + n * (capacity + 1)];
+        key[0] = (byte) (n >>> 8);
+        key[1] = (byte) n;
+        key[2] = (byte) capacity;
+        int[] result = new int[n];
+        for (int k = 0; k < n; k++) {
+            result[k] = order[k];
+            System.arraycopy(contents[order[k]], 0, key, HEADER_BYTES + k * (capacity + 1), contents[order[k]].length);
+        }
+        return new Canonical(key, result);
+    }
+
+    /** Ранги пробирок, не зависящие от номеров цветов и порядка пробирок */
+    private static int[] rankTubes(GameState puzzle) {
+        int n = puzzle.getTubeCount();
+        int capacity = puzzle.getCapacity();
+        int[] colorRanks = new int[Byte.MAX_VALUE + 1];
+        int[] tubeRanks = new int[n];
+        int distinct = -1;
+        for (int round = 0; round <= n; round++) {
+            int[][] tubeKeys = new int[n][];
+            for (int t = 0; t < n; t++) {
+                int size = puzzle.tubeSize(t);
+                int[] tubeKey = new int[1 + 2 * size];
+                tubeKey[0] = size;
+                int[] local = new int[Byte.MAX_VALUE + 1];
+                int next = 1;
+                for (int slot = 0; slot < size; slot++) {
+                    int color = puzzle.colorAt(t, slot);
+                    if (local[color] == 0) local[color] = next++;
+                    tubeKey[1 + slot] = local[color];
+                    tubeKey[1 + size + slot] = colorRanks[color];
+                }
+                tubeKeys[t] = tubeKey;
+            }
+            tubeRanks = denseRanks(tubeKeys);
+
+            List<List<Integer>> occurrences = new ArrayList<>(Byte.MAX_VALUE + 1);
+            for (int color = 0; color <= Byte.MAX_VALUE; color++) occurrences.add(new ArrayList<>());
+            for (int t = 0; t < n; t++) {
+                for (int slot = 0; slot < puzzle.tubeSize(t); slot++) {
+                    occurrences.get(puzzle.colorAt(t, slot)).add(tubeRanks[t] * (capacity + 1) + slot);
+                }
+            }
+            int[][] colorKeys = new int[occurrences.size()][];
+            for (int color = 0; color < colorKeys.length; color++) {
+                colorKeys[color] = occurrences.get(color).stream().mapToInt(Integer::intValue).sorted().toArray();
+            }
+            colorRanks = denseRanks(colorKeys);
+
+            int classes = (int) Arrays.stream(tubeRanks).distinct().count();
+            if (classes == distinct) break;
+            distinct = classes;
+        }
+        return tubeRanks;
+    }
+
+    /** Плотные ранги ключей: равные ключи — равный ранг, порядок рангов — порядок ключей */
+    private static int[] denseRanks(int[][] keys) {
+        Integer[] order = new Integer[keys.length];
+        for (int i = 0; i < keys.length; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> Arrays.compare(keys[a], keys[b]));
+        int[] ranks = new int[keys.length];
+        int rank = 0;
+        for (int i = 1; i < order.length; i++) {
+            if (Arrays.compare(keys[order[i - 1]], keys[order[i]]) != 0) rank++;
+            ranks[order[i]] = rank;
+        }
+        return ranks;
+    }
+
+    /** Содержимое пробирок (размер и цвета) с цветами, перенумерованными по первому появлению в порядке order */
+    private static byte[][] relabel(GameState puzzle, Integer[] order) {
+        int[] labels = new int[Byte.MAX_VALUE + 1];
+        int next = 1;
+        byte[][] contents = new byte[order.length][];
+        for (int tube : order) {
+            int size = puzzle.tubeSize(tube);
+            byte[] content = new byte[size + 1];
+            content[0] = (byte) size;
+            for (int slot = 0; slot < size; slot++) {
+                int color = puzzle.colorAt(tube, slot);
+                if (labels[color] == 0) labels[color] = next++;
+                content[slot + 1] = (byte) labels[color];
+            }
+            contents[tube] = content;
+        }
+        return contents;
+    }
+
+    /** 64-битный FNV-1a ключа */
+    private static long fingerprint(byte[] key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,64 @@
+package search;
+
+import models.GameState;
+import models.MutableState;
+
+/**
+ * Способ отождествления состояний при поиске дубликатов.
+ * POSITIONAL различает порядок пробирок, CANONICAL считает состояния,
+ * отличающиеся только перестановкой пробирок, одним и тем же.
+ * Сами состояния при этом не переставляются, поэтому ходы в найденном пути
+ * всегда указаны в настоящих номерах пробирок.
+ */
+public enum StateKey {
+    POSITIONAL {
+        @Override
+        public long primary(GameState state) {
+            return state.fingerprint();
+        }
+
+        @Override
+        public long secondary(GameState state) {
+            return state.secondaryFingerprint();
+        }
+
+        @Override
+        public long primary(MutableState state) {
+            return state.fingerprint();
+        }
+
+        @Override
+        public long secondary(MutableState state) {
+            return state.secondaryFingerprint();
+        }
+    },
+    CANONICAL {
+        @Override
+        public long primary(GameState state) {
+            return state.canonicalFingerprint();
+        }
+
+        @Override
+        public long secondary(GameState state) {
+            return state.secondaryCanonicalFingerprint();
+        }
+
+        @Override
+        public long primary(MutableState state) {
+            return state.canonicalFingerprint();
+        }
+
+        @Override
+        public long secondary(MutableState state) {
+            return state.secondaryCanonicalFingerprint();
+        }
+    };
+
+    public abstract long primary(GameState state);
+
+    public abstract long secondary(GameState state);
+
+    public abstract long primary(MutableState state);
+
+    public abstract long secondary(MutableState state);
+}
@@ -0,0 +1,68 @@
+package search;
+
+import java.util.Arrays;
+
+/**
+ * Таблица транспозиций фиксированного размера для IDA*.
+ * Прямая адресация без цепочек: при коллизии старая запись просто
+ * вытесняется, поэтому объём памяти не растёт во время поиска.
+ * Для каждого отпечатка хранится наименьшая глубина, на которой
+ * состояние уже было пройдено в текущей итерации.
+ */
+public class TranspositionTable {
+    private final long[] keys;
+    private final int[] depths;
+    private final int shift;
+
+    private long hits;
+    private long overwrites;
+
+    public TranspositionTable(int entries) {
+        int slots = Integer.highestOneBit(Math.max(16, entries));
+        this.keys = new long[slots];
+        this.depths = new int[slots];
+        this.shift = 64 - Integer.numberOfTrailingZeros(slots);
+    }
+
+    /**
+     * Отмечает, что состояние достигнуто на глубине depth.
+     * Возвращает false, если оно уже было пройдено на той же или меньшей глубине —
+     * тогда повторный обход ничего нового не даст.
+     */
+    public boolean visit(long fingerprint, int depth) {
+        int slot = (int) ((fingerprint * 0x9E3779B97F4A7C15L) >>> shift);
+        // 0 глубины означает пустую ячейку, поэтому глубина хранится со смещением на 1
+        if (keys[slot] == fingerprint && depths[slot] != 0) {
+            if (depths[slot] - 1 <= depth) {
+                hits++;
+                return false;
+            }
+        } else if (depths[slot] != 0) {
+            overwrites++;
+        }
+        keys[slot] = fingerprint;
+        depths[slot] = depth + 1;
+        return true;
+    }
+
+    /** Очищает таблицу перед новой итерацией углубления */
+    public void clear() {
+        Arrays.fill(depths, 0);
+    }
+
+    public int capacity() {
+        return keys.length;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getOverwrites() {
+        return overwrites;
+    }
+
+    public long memoryBytes() {
+        return (long) keys.length * (Long.BYTES + Integer.BYTES);
+    }
+}
@@ -22,6 +22,7 @@ import com.fileservice.util.*;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 
+import java.nio.file.Paths;
 import java.sql.Connection;
 
 /**
@@ -76,7 +77,10 @@ public class Main {
             ITokenService tokenService = new JwtUtil(config);
             IPasswordHasher passwordHasher = new PasswordUtil();
             ResponseHelper responseHelper = new ResponseHelper(gson);
-            MultipartParser multipartParser = new MultipartParser();
+            MultipartParser multipartParser = new MultipartParser(
+                config.getFileMaxSizeBytes(),
+                Paths.get(config.getFileStoragePath())
+            );
             
             // ============================================
             // 7. Создаем Services (зависят от Repositories + Utilities)
@@ -155,7 +159,7 @@ public class Main {
             // 11. Создаем и запускаем HTTP Server
             // ============================================
             int port = config.getServerPort();
-            OurHttpServer server = new OurHttpServer(port, router);
+            OurHttpServer server = new OurHttpServer(config, router);
             server.start();
             
             System.out.println("HTTP Server started on port " + port);
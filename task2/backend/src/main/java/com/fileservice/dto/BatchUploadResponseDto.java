@@ -0,0 +1,14 @@
+package com.fileservice.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class BatchUploadResponseDto {
+    private final List<FileUploadResponseDto> files;
+    private final Integer uploaded;
+    private final Integer failed;
+}
@@ -3,11 +3,15 @@ package com.fileservice.dto;
 import lombok.Builder;
 import lombok.Data;
 
+import java.nio.file.Path;
+
 @Data
 @Builder
 public class FileDownloadDto {
-    private final byte[] data;
+    private final Path file;
     private final String mimeType;
     private final String fileName;
+    private final String etag;
+    private final long lastModified;
 
 }
\ No newline at end of file
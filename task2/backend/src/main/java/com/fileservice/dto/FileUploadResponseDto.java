@@ -10,4 +10,5 @@ public class FileUploadResponseDto {
     private final String downloadUrl;
     private final String originalName;
     private final String message;
+    private final String error;
 }
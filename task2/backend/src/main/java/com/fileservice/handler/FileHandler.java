@@ -1,6 +1,8 @@
 package com.fileservice.handler;
 
 import com.common.core.http.PrimaryHandler;
+import com.common.core.exception.ValidationException;
+import com.fileservice.dto.BatchUploadResponseDto;
 import com.fileservice.dto.FileDownloadDto;
 import com.fileservice.dto.FileStatsResponseDto;
 import com.fileservice.dto.FileUploadResponseDto;
@@ -17,6 +19,8 @@ import java.util.UUID;
  * Handler для обработки запросов работы с файлами
  */
 public class FileHandler extends PrimaryHandler {
+    private static final int MAX_BATCH_FILES = 100;
+
     private final IFileService fileService;
 
     public FileHandler(IFileService fileService, Gson gson, ResponseHelper responseHelper, MultipartParser multipartParser) {
@@ -32,29 +36,61 @@ public class FileHandler extends PrimaryHandler {
 
         MultipartParser.FileUpload upload = parseFileUpload(exchange);
 
-        FileUploadResponseDto response = fileService.uploadFile(
-            userId, 
-            upload.getFileName(), 
-            upload.getFileData()
-        );
+        FileUploadResponseDto response;
+        try {
+            response = fileService.uploadFile(
+                userId,
+                upload.getFileName(),
+                upload.getFile()
+            );
+        } finally {
+            // после успешной загрузки временный файл уже перенесён в хранилище
+            upload.delete();
+        }
+
+        sendJsonResponse(exchange, 201, response);
+    }
+
+    /**
+     * Обрабатывает загрузку нескольких файлов одним запросом
+     */
+    public void handleBatchUpload(HttpExchange exchange) throws IOException {
+        Integer userId = (Integer) exchange.getAttribute("userId");
+
+        MultipartParser.Form form = parseForm(exchange, MAX_BATCH_FILES);
+        if (form.getFiles().isEmpty()) {
+            throw new ValidationException("No file found in multipart request");
+        }
+
+        BatchUploadResponseDto response;
+        try {
+            response = fileService.uploadFiles(userId, form.getFiles());
+        } finally {
+            form.deleteFiles();
+        }
 
         sendJsonResponse(exchange, 201, response);
     }
 
     /**
-     * Обрабатывает скачивание файла
+     * Обрабатывает скачивание файла (Range, If-None-Match, If-Modified-Since)
      */
     public void handleDownload(HttpExchange exchange, String uuidStr) throws IOException {
         UUID uuid = UUID.fromString(uuidStr);
         FileDownloadDto response = fileService.downloadFile(uuid);
 
-        sendBinary(
-            exchange, 
-            200, 
-            response.getData(), 
-            response.getMimeType(), 
-            response.getFileName()
+        // 304 и фрагменты докачки не считаются скачиваниями
+        boolean downloaded = sendFile(
+            exchange,
+            response.getFile(),
+            response.getMimeType(),
+            response.getFileName(),
+            response.getEtag(),
+            response.getLastModified()
         );
+        if (downloaded) {
+            fileService.registerDownload(uuid);
+        }
     }
 
     /**
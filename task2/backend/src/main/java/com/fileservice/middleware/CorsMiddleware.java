@@ -16,7 +16,10 @@ public class CorsMiddleware implements Middleware {
         // Добавляем CORS headers
         exchange.getResponseHeaders().add("Access-Control-Allow-Origin", "*");
         exchange.getResponseHeaders().add("Access-Control-Allow-Methods", "GET, POST, PUT, DELETE, OPTIONS");
-        exchange.getResponseHeaders().add("Access-Control-Allow-Headers", "Content-Type, Authorization");
+        exchange.getResponseHeaders().add("Access-Control-Allow-Headers",
+                "Content-Type, Authorization, Range, If-Range, If-None-Match, If-Modified-Since");
+        exchange.getResponseHeaders().add("Access-Control-Expose-Headers",
+                "Content-Range, Content-Disposition, Accept-Ranges, ETag, Last-Modified");
         
         // Обработка preflight запросов
         if ("OPTIONS".equals(exchange.getRequestMethod())) {
@@ -41,6 +41,33 @@ public class FileRepository implements IFileRepository {
         }
     }
 
+    public List<FileInfo> createAll(List<UUID> uuids, Integer userId, List<String> paths) {
+        String sql = "INSERT INTO files (uuid, user_id, path, created_at, download_count, isDeleted) " +
+                    "SELECT t.uuid, ?, t.path, CURRENT_TIMESTAMP, 0, false " +
+                    "FROM unnest(?::uuid[], ?::text[]) AS t(uuid, path) " +
+                    "RETURNING uuid, user_id, path, created_at, last_download_at, download_count, isDeleted";
+
+        List<FileInfo> files = new ArrayList<>();
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setInt(1, userId);
+            stmt.setArray(2, connection.createArrayOf("uuid", uuids.toArray()));
+            stmt.setArray(3, connection.createArrayOf("text", paths.toArray()));
+            ResultSet rs = stmt.executeQuery();
+
+            while (rs.next()) {
+                files.add(mapper.mapFromResultSet(rs));
+            }
+
+            if (files.size() != uuids.size()) {
+                throw new DatabaseException("Failed to create file records");
+            }
+
+            return files;
+        } catch (SQLException e) {
+            throw new DatabaseException("Failed to create file records", e);
+        }
+    }
+
     public FileInfo findByUuid(UUID uuid) {
         String sql = "SELECT uuid, user_id, path, created_at, last_download_at, download_count, isDeleted " +
                     "FROM files WHERE uuid = ? AND isDeleted = false";
@@ -13,6 +13,11 @@ public interface IFileRepository {
      * Создает запись о новом файле
      */
     FileInfo create(UUID uuid, Integer userId, String path);
+
+    /**
+     * Создает записи о нескольких файлах пользователя одним запросом
+     */
+    List<FileInfo> createAll(List<UUID> uuids, Integer userId, List<String> paths);
     
     /**
      * Находит файл по UUID
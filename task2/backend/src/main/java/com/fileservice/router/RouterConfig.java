@@ -31,6 +31,7 @@ public class RouterConfig {
         router.post("/api/login", authHandler::handleLogin);
 
         router.post("/api/files/upload", fileHandler::handleUpload, authMiddleware);
+        router.post("/api/files/upload/batch", fileHandler::handleBatchUpload, authMiddleware);
         router.get("/api/files/{uuid}", exchange -> {
             @SuppressWarnings("unchecked")
             Map<String, String> pathParams = (Map<String, String>) exchange.getAttribute("pathParams");
@@ -1,6 +1,8 @@
 package com.fileservice.service;
 
 import com.common.core.config.Config;
+import com.common.core.http.MultipartParser;
+import com.fileservice.dto.BatchUploadResponseDto;
 import com.fileservice.dto.FileDownloadDto;
 import com.fileservice.dto.FileStatsResponseDto;
 import com.fileservice.dto.FileUploadResponseDto;
@@ -14,7 +16,14 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -27,43 +36,115 @@ public class FileService implements IFileService {
     private final Config config;
 
     /**
-     * Сохраняет файл на диск и создает запись в БД
+     * Переносит принятый файл в хранилище и создает запись в БД
      * @return DTO с информацией о загруженном файле
      */
-    public FileUploadResponseDto uploadFile(Integer userId, String originalFileName, byte[] fileData) {
-        if (originalFileName == null || originalFileName.trim().isEmpty()) {
-            throw new ValidationException("File name is required");
-        }
-        if (fileData == null || fileData.length == 0) {
-            throw new ValidationException("File data is empty");
-        }
+    public FileUploadResponseDto uploadFile(Integer userId, String originalFileName, Path uploadedFile) {
+        validateUpload(originalFileName, uploadedFile);
 
         try {
-            // Создаем директорию для хранения файлов
-            Path uploadDir = Paths.get(config.getFileStoragePath());
-            if (!Files.exists(uploadDir)) {
-                Files.createDirectories(uploadDir);
-            }
-
             UUID fileUuid = UUID.randomUUID();
-            Path filePath = uploadDir.resolve(originalFileName);
-
-            Files.write(filePath, fileData);
+            storeFile(originalFileName, uploadedFile);
 
             FileInfo fileInfo = fileRepository.create(fileUuid, userId, originalFileName);
 
-            return FileUploadResponseDto.builder()
-                    .uuid(fileInfo.getUuid().toString())
-                    .downloadUrl("/api/files/" + fileInfo.getUuid().toString())
-                    .originalName(originalFileName)
-                    .message("File uploaded successfully")
-                    .build();
+            return toUploadResponse(fileInfo, originalFileName);
 
         } catch (IOException e) {
             throw new RuntimeException("Failed to save file", e);
         }
     }
 
+    /**
+     * Переносит принятые файлы в хранилище и регистрирует их в БД одним запросом.
+     * Файлы с ошибкой (пустые, без имени, с именем, уже встречавшимся в запросе, не перенесённые)
+     * не прерывают загрузку остальных. Повтор имени отклоняется: файлы хранятся по имени,
+     * и второй перезаписал бы первый
+     * @return результат по каждому файлу в порядке запроса
+     */
+    public BatchUploadResponseDto uploadFiles(Integer userId, List<MultipartParser.FileUpload> uploads) {
+        FileUploadResponseDto[] results = new FileUploadResponseDto[uploads.size()];
+        List<Integer> stored = new ArrayList<>();
+        List<UUID> uuids = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        Set<String> storedNames = new HashSet<>();
+
+        for (int i = 0; i < uploads.size(); i++) {
+            MultipartParser.FileUpload upload = uploads.get(i);
+            try {
+                validateUpload(upload.getFileName(), upload.getFile());
+                if (storedNames.contains(upload.getFileName())) {
+                    throw new ValidationException("Duplicate file name in request");
+                }
+                storeFile(upload.getFileName(), upload.getFile());
+                storedNames.add(upload.getFileName());
+                stored.add(i);
+                uuids.add(UUID.randomUUID());
+                names.add(upload.getFileName());
+            } catch (ValidationException e) {
+                results[i] = toUploadError(upload.getFileName(), e.getMessage());
+            } catch (IOException e) {
+                results[i] = toUploadError(upload.getFileName(), "Failed to save file");
+            }
+        }
+
+        if (!stored.isEmpty()) {
+            List<FileInfo> created = fileRepository.createAll(uuids, userId, names);
+            Map<UUID, FileInfo> byUuid = created.stream()
+                    .collect(Collectors.toMap(FileInfo::getUuid, fileInfo -> fileInfo));
+            for (int k = 0; k < stored.size(); k++) {
+                results[stored.get(k)] = toUploadResponse(byUuid.get(uuids.get(k)), names.get(k));
+            }
+        }
+
+        return BatchUploadResponseDto.builder()
+                .files(Arrays.asList(results))
+                .uploaded(stored.size())
+                .failed(uploads.size() - stored.size())
+                .build();
+    }
+
+    private void validateUpload(String originalFileName, Path uploadedFile) {
+        if (originalFileName == null || originalFileName.trim().isEmpty()) {
+            throw new ValidationException("File name is required");
+        }
+        try {
+            if (uploadedFile == null || Files.size(uploadedFile) == 0) {
+                throw new ValidationException("File data is empty");
+            }
+        } catch (IOException e) {
+            throw new ValidationException("File data is empty");
+        }
+    }
+
+    private void storeFile(String originalFileName, Path uploadedFile) throws IOException {
+        // Создаем директорию для хранения файлов
+        Path uploadDir = Paths.get(config.getFileStoragePath());
+        if (!Files.exists(uploadDir)) {
+            Files.createDirectories(uploadDir);
+        }
+
+        // временный файл лежит в том же каталоге, так что перенос — переименование
+        Files.move(uploadedFile, uploadDir.resolve(originalFileName), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private FileUploadResponseDto toUploadResponse(FileInfo fileInfo, String originalFileName) {
+        return FileUploadResponseDto.builder()
+                .uuid(fileInfo.getUuid().toString())
+                .downloadUrl("/api/files/" + fileInfo.getUuid().toString())
+                .originalName(originalFileName)
+                .message("File uploaded successfully")
+                .build();
+    }
+
+    private FileUploadResponseDto toUploadError(String originalFileName, String error) {
+        return FileUploadResponseDto.builder()
+                .originalName(originalFileName)
+                .message("File was not uploaded")
+                .error(error)
+                .build();
+    }
+
     /**
      * Получает файл для скачивания
      * @return DTO с данными файла
@@ -80,9 +161,8 @@ public class FileService implements IFileService {
                 throw new FileNotFoundException("File not found on disk");
             }
 
-            byte[] fileData = Files.readAllBytes(filePath);
-
-            fileRepository.incrementDownloadCount(uuid);
+            BasicFileAttributes attributes = Files.readAttributes(filePath, BasicFileAttributes.class);
+            long lastModified = attributes.lastModifiedTime().toMillis();
 
             String mimeType = Files.probeContentType(filePath);
             if (mimeType == null) {
@@ -90,9 +170,14 @@ public class FileService implements IFileService {
             }
 
             return FileDownloadDto.builder()
-                    .data(fileData)
+                    .file(filePath)
                     .mimeType(mimeType)
                     .fileName(fileInfo.getPath())
+                    // файл на диске может быть перезаписан загрузкой с тем же именем,
+                    // поэтому валидаторы строятся по его атрибутам, а не по записи в БД
+                    .etag("\"" + fileInfo.getUuid() + "-" + Long.toHexString(attributes.size())
+                            + "-" + Long.toHexString(lastModified) + "\"")
+                    .lastModified(lastModified)
                     .build();
 
         } catch (IOException e) {
@@ -100,6 +185,13 @@ public class FileService implements IFileService {
         }
     }
 
+    /**
+     * Учитывает скачивание: счетчик и время последнего скачивания
+     */
+    public void registerDownload(UUID uuid) {
+        fileRepository.incrementDownloadCount(uuid);
+    }
+
     /**
      * Получает статистику файлов пользователя
      */
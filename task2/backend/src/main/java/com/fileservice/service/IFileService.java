@@ -1,10 +1,14 @@
 package com.fileservice.service;
 
+import com.common.core.http.MultipartParser;
+import com.fileservice.dto.BatchUploadResponseDto;
 import com.fileservice.dto.FileDownloadDto;
 import com.fileservice.dto.FileStatsResponseDto;
 import com.fileservice.dto.FileUploadResponseDto;
 import com.common.core.transaction.Transactional;
 
+import java.nio.file.Path;
+import java.util.List;
 import java.util.UUID;
 
 /**
@@ -12,16 +16,28 @@ import java.util.UUID;
  */
 public interface IFileService {
     /**
-     * Загружает файл на сервер
+     * Загружает файл на сервер: переносит принятый временный файл в хранилище
      */
     @Transactional
-    FileUploadResponseDto uploadFile(Integer userId, String originalFileName, byte[] fileData);
+    FileUploadResponseDto uploadFile(Integer userId, String originalFileName, Path uploadedFile);
+
+    /**
+     * Загружает несколько файлов; записи в БД создаются одним запросом
+     */
+    @Transactional
+    BatchUploadResponseDto uploadFiles(Integer userId, List<MultipartParser.FileUpload> uploads);
     
     /**
      * Скачивает файл с сервера
      */
     @Transactional
     FileDownloadDto downloadFile(UUID uuid);
+
+    /**
+     * Учитывает скачивание файла (вызывается, только если файл отдан с начала)
+     */
+    @Transactional
+    void registerDownload(UUID uuid);
     
     /**
      * Получает статистику файлов пользователя
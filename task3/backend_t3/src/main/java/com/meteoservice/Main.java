@@ -120,7 +120,7 @@ public class Main {
             // 9. Создаём и запускаем HTTP Server
             // ============================================
             int port = config.getServerPort();
-            OurHttpServer server = new OurHttpServer(port, router);
+            OurHttpServer server = new OurHttpServer(config, router);
             server.start();
             
             System.out.println("\nHTTP Server started successfully!");